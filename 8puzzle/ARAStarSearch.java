@@ -0,0 +1,216 @@
+/*
+ * Compilation:  javac-algs4 ARAStarSearch.java
+ * Execution:
+ * Dependencies: Board.java, NodePool.java, BucketQueue.java, StateTable.java,
+ *               AStarSearch.java, Heuristic.java, Search.java,
+ *               SearchBudget.java, SearchLimitException.java
+ *
+ * Description: Anytime repairing A* (ARA*) from a start board. It runs
+ *              weighted A* (see AStarSearch.java) with a high weight to find
+ *              a solution fast, then lowers the weight step by step and
+ *              improves the solution, down to weight 1. Each round reuses
+ *              the nodes of the last: a state is expanded at most once per
+ *              round, and states reached by a shorter path after their
+ *              expansion wait in a list (INCONS) for the next round instead
+ *              of being expanded again.
+ *              After each round the smallest moves + estimate left in the
+ *              queue and that list is a lower bound on the shortest solution.
+ *              At weight 1 rounds repeat until that bound meets the
+ *              solution: with a heuristic that isn't consistent (such as
+ *              PatternDatabase.java) a round can end with a shorter solution
+ *              still to be found from INCONS.
+ *              If the time or memory budget runs out once there is a
+ *              solution, the search stops with the best one so far instead
+ *              of failing.
+ */
+
+import java.util.Arrays;
+
+class ARAStarSearch implements Search {
+
+    /* Weight taken off after each round, 1/2 in 1/AStarSearch.SCALE units.
+     * The first round runs at the starting weight rounded down as in
+     * AStarSearch.weight(), and the last round above 1 at whatever is left
+     * above 1, never less than 1/AStarSearch.SCALE. */
+    private static final int STEP = AStarSearch.SCALE / 2;
+    /* Rough bytes per node besides its state: its ints in the pool, the
+     * round it was expanded in and its slot in the table. */
+    private static final int NODE_BYTES = 28;
+    /* Rough bytes per queue entry: its link in the bucket. */
+    private static final int QUEUE_BYTES = 4;
+
+    /* Nodes waiting to be expanded this round, by moves + weight * estimate
+     * (scaled). */
+    private BucketQueue open;
+    /* Nodes reached by a shorter path after their state was expanded this
+     * round. */
+    private int[] incons;
+    private int inconsSize;
+    /* Round each node was expanded in, 0 if it hasn't been. */
+    private int[] expandedIn;
+    private int round = 1;
+    private NodePool nodes;
+    /* Best node found so far for every generated state. */
+    private StateTable best;
+    private int N;
+    private long[] scratch;
+    private Heuristic heuristic;
+    private SearchBudget budget;
+    private SolverStats stats;
+    private long[] goalState;
+    /* Current weight in 1/AStarSearch.SCALE units. */
+    private int weight;
+    /* Best goal node found so far, and what's known about the shortest
+     * solution. */
+    private int goal = -1;
+    private int lowerBound;
+
+    /* Starts a search from the given board with the given starting weight,
+     * at least 1. */
+    public ARAStarSearch(Board start, Heuristic heuristic, double weight,
+                         SearchBudget budget) {
+        this.heuristic = heuristic;
+        this.budget = budget;
+        this.weight = AStarSearch.weight(weight);
+        stats = budget.stats();
+        N = start.dimension();
+        scratch = new long[Board.words(N)];
+        nodes = new NodePool(scratch.length);
+        best = new StateTable(scratch.length);
+        open = new BucketQueue();
+        incons = new int[64];
+        expandedIn = new int[1024];
+        goalState = Board.goal(N);
+        long[] state = start.packed();
+        int h = heuristic.estimate(state, N);
+        stats.generated++;
+        stats.heuristicEvals++;
+        int root = nodes.add(state, start.blankIndex(), h);
+        best.put(state, 0, root);
+        open.insert(root, key(root), 0);
+        lowerBound = h;
+        if (h == 0 && isGoal(root))
+            goal = root;
+    }
+
+    /* Expands the node with the lowest key. Once no node in the queue could
+     * lead to a better solution at the current weight, ends the round: the
+     * search is done if the solution is known to be shortest, otherwise the
+     * weight drops (if it's above 1) and the queue is rebuilt with the nodes
+     * left in it and in INCONS. */
+    public boolean step() {
+        if (open.isEmpty() || (goal >= 0 && open.minPriority() >= key(goal)))
+            return endRound();
+        int i = open.delMin();
+        if (best.get(nodes.states(), nodes.offset(i)) != i)
+            return false;
+        if (i >= expandedIn.length)
+            expandedIn = Arrays.copyOf(expandedIn, 2 * nodes.size());
+        expandedIn[i] = round;
+        if (++stats.expanded % 1024 == 0) {
+            try {
+                budget.check(nodes.size() * (NODE_BYTES + 16L * scratch.length)
+                             + (long) (open.size() + inconsSize) * QUEUE_BYTES);
+            }
+            catch (SearchLimitException e) {
+                if (goal < 0)
+                    throw e;
+                return true;
+            }
+        }
+        int blank = nodes.blank(i);
+        int moves = nodes.moves(i) + 1;
+        int parent = nodes.parent(i);
+        for (int dir = Board.UP; dir <= Board.RIGHT; dir++) {
+            int to = Board.target(N, blank, dir);
+            if (to < 0 || (parent >= 0 && to == nodes.blank(parent)))
+                continue;
+            nodes.state(i, scratch);
+            int tile = Board.tileAt(scratch, N, to);
+            Board.slide(scratch, scratch, N, blank, to);
+            stats.generated++;
+            int seen = best.get(scratch, 0);
+            if (seen >= 0 && nodes.moves(seen) <= moves) {
+                stats.duplicates++;
+                continue;
+            }
+            stats.heuristicEvals++;
+            int h = heuristic.update(scratch, N, nodes.estimate(i), tile,
+                                     to, blank);
+            int child = nodes.add(scratch, to, h, i, dir);
+            best.put(scratch, 0, child);
+            if (h == 0 && isGoal(child)) {
+                if (goal < 0 || moves < nodes.moves(goal))
+                    goal = child;
+            }
+            else if (seen >= 0 && seen < expandedIn.length
+                     && expandedIn[seen] == round) {
+                if (inconsSize == incons.length)
+                    incons = Arrays.copyOf(incons, 2 * inconsSize);
+                incons[inconsSize++] = child;
+            }
+            else
+                open.insert(child, key(child), moves);
+        }
+        stats.frontier(open.size() + inconsSize);
+        return false;
+    }
+
+    /* Returns the moves from the start board to the best goal found. */
+    public byte[] path() {
+        return nodes.path(goal);
+    }
+
+    public int lowerBound() {
+        return lowerBound;
+    }
+
+    /* Ends a round. Returns true if the search is done. */
+    private boolean endRound() {
+        if (goal < 0)
+            throw new IllegalStateException("No solution from a solvable board");
+        int length = nodes.moves(goal);
+        int[] left = new int[open.size() + inconsSize];
+        int n = 0;
+        int bound = length;
+        while (!open.isEmpty())
+            n = keep(open.delMin(), left, n);
+        for (int k = 0; k < inconsSize; k++)
+            n = keep(incons[k], left, n);
+        for (int k = 0; k < n; k++)
+            bound = Math.min(bound, nodes.priority(left[k]));
+        lowerBound = Math.max(lowerBound, bound);
+        // With no nodes left the bound is the length.
+        if (lowerBound == length)
+            return true;
+        weight = Math.max(AStarSearch.SCALE, weight - STEP);
+        open = new BucketQueue();
+        for (int k = 0; k < n; k++)
+            open.insert(left[k], key(left[k]), nodes.moves(left[k]));
+        inconsSize = 0;
+        round++;
+        return false;
+    }
+
+    /* Adds node i to list at n unless a shorter path to its state has been
+     * found since. Returns the new length of the list. */
+    private int keep(int i, int[] list, int n) {
+        if (best.get(nodes.states(), nodes.offset(i)) == i)
+            list[n++] = i;
+        return n;
+    }
+
+    /* Returns the queue key of node i at the current weight. */
+    private int key(int i) {
+        return AStarSearch.key(weight, nodes.moves(i), nodes.estimate(i));
+    }
+
+    /* Returns true if node i holds the goal state. */
+    private boolean isGoal(int i) {
+        if (nodes.blank(i) != N * N - 1)
+            return false;
+        int off = nodes.offset(i);
+        return Arrays.equals(nodes.states(), off, off + scratch.length,
+                             goalState, 0, goalState.length);
+    }
+}
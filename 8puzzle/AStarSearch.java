@@ -0,0 +1,180 @@
+/*
+ * Compilation:  javac-algs4 AStarSearch.java
+ * Execution:
+ * Dependencies: Board.java, NodePool.java, BucketQueue.java, StateTable.java,
+ *               Heuristic.java, Search.java, SearchBudget.java
+ *
+ * Description: A* search from a start board. Search nodes live in a NodePool:
+ *              a packed board state (see Board.java) and a few ints each,
+ *              with a parent index and a 2-bit move instead of a reference
+ *              to the previous node. A table maps every generated state to
+ *              the node that reached it in the fewest moves, so no state is
+ *              queued again unless by a shorter path, and no state is
+ *              expanded twice. Each node's estimate is derived from its
+ *              parent's when the node is created and stored with it.
+ *              Priorities are small integers, so the queue is a BucketQueue
+ *              rather than a heap.
+ *              With a weight w > 1 this is weighted A*: the estimate counts
+ *              w times in the priority, which steers the search to the goal
+ *              much faster, and the solution found is at most w times as
+ *              long as the shortest one. Weights are kept as integers in
+ *              1/SCALE units, rounded down so the bound still holds, and
+ *              priorities stay integers (checked for overflow).
+ */
+
+import java.util.Arrays;
+
+class AStarSearch implements Search {
+
+    /* Weights are in units of 1/SCALE. */
+    static final int SCALE = 64;
+
+    /* Rough bytes per node besides its state: its ints in the pool and its
+     * slot in the table. States take one copy in each. */
+    private static final int NODE_BYTES = 24;
+    /* Rough bytes per queue entry: its link in the bucket. */
+    private static final int QUEUE_BYTES = 4;
+
+    /* Priority queue of the indices of nodes waiting to be expanded. The
+     * priority function is:
+     * PF = weight * estimate + moves to get to the current board state
+     * Ties go to the node with more moves, which is closer to a goal. */
+    private BucketQueue pq;
+    /* Search nodes. */
+    private NodePool nodes;
+    /* Best node found so far for every generated state. */
+    private StateTable best;
+    /* Dimension of the board and scratch space for a neighboring state. */
+    private int N;
+    private long[] scratch;
+    private Heuristic heuristic;
+    private SearchBudget budget;
+    private SolverStats stats;
+    private long[] goalState;
+    /* Weight of the estimate in 1/SCALE units. */
+    private int weight;
+    /* Estimate for the start board. */
+    private int h0;
+    /* Goal node, once found. */
+    private int goal = -1;
+
+    /* Starts a search from the given board. */
+    public AStarSearch(Board start, Heuristic heuristic, SearchBudget budget) {
+        this(start, heuristic, 1.0, budget);
+    }
+
+    /* Starts a weighted search from the given board. The weight must be at
+     * least 1. */
+    public AStarSearch(Board start, Heuristic heuristic, double weight,
+                       SearchBudget budget) {
+        this.heuristic = heuristic;
+        this.budget = budget;
+        this.weight = weight(weight);
+        stats = budget.stats();
+        N = start.dimension();
+        scratch = new long[Board.words(N)];
+        nodes = new NodePool(scratch.length);
+        best = new StateTable(scratch.length);
+        pq = new BucketQueue();
+        goalState = Board.goal(N);
+        long[] state = start.packed();
+        h0 = heuristic.estimate(state, N);
+        stats.generated++;
+        stats.heuristicEvals++;
+        int root = nodes.add(state, start.blankIndex(), h0);
+        best.put(state, 0, root);
+        pq.insert(root, key(0, h0), 0);
+    }
+
+    /* Takes the node with the lowest priority off the queue. If it's the
+     * goal, the search is done. Otherwise, if no shorter path to its state
+     * has been found since it was queued, puts its neighbors on the queue
+     * unless their states were already reached in as few moves. Neighbors
+     * are built in the scratch state and only copied into the pool if they
+     * go on the queue. */
+    public boolean step() {
+        int i = pq.delMin();
+        long[] states = nodes.states();
+        int off = nodes.offset(i);
+        if (best.get(states, off) != i)
+            return false;
+        if (nodes.estimate(i) == 0 && isGoal(i)) {
+            goal = i;
+            return true;
+        }
+        if (++stats.expanded % 1024 == 0)
+            budget.check(nodes.size() * (NODE_BYTES + 16L * scratch.length)
+                         + (long) pq.size() * QUEUE_BYTES);
+        int blank = nodes.blank(i);
+        int moves = nodes.moves(i) + 1;
+        int parent = nodes.parent(i);
+        for (int dir = Board.UP; dir <= Board.RIGHT; dir++) {
+            int to = Board.target(N, blank, dir);
+            if (to < 0 || (parent >= 0 && to == nodes.blank(parent)))
+                continue;
+            nodes.state(i, scratch);
+            int tile = Board.tileAt(scratch, N, to);
+            Board.slide(scratch, scratch, N, blank, to);
+            stats.generated++;
+            int seen = best.get(scratch, 0);
+            if (seen >= 0 && nodes.moves(seen) <= moves) {
+                stats.duplicates++;
+                continue;
+            }
+            stats.heuristicEvals++;
+            int h = heuristic.update(scratch, N, nodes.estimate(i), tile,
+                                     to, blank);
+            int child = nodes.add(scratch, to, h, i, dir);
+            best.put(scratch, 0, child);
+            pq.insert(child, key(moves, h), moves);
+        }
+        stats.frontier(pq.size());
+        return false;
+    }
+
+    /* Returns the moves from the start board to the goal, found by following
+     * parent links back from the goal node. */
+    public byte[] path() {
+        return nodes.path(goal);
+    }
+
+    /* Returns a lower bound on the moves of a shortest solution: the
+     * solution's own length divided by the weight. */
+    public int lowerBound() {
+        int length = nodes.moves(goal);
+        return Math.max(h0, (SCALE * length + weight - 1) / weight);
+    }
+
+    /* Returns the given weight in 1/SCALE units, rounded down and capped
+     * at 64. A weight above 1 that would round down to 1 is rejected
+     * rather than quietly turned into plain A*. */
+    static int weight(double weight) {
+        if (!(weight >= 1.0))
+            throw new IllegalArgumentException("Weight must be at least 1");
+        int w = (int) Math.min(Math.floor(weight * SCALE), 64 * SCALE);
+        if (w == SCALE && weight > 1.0)
+            throw new IllegalArgumentException("Weight must be 1 or at least "
+                                               + (1.0 + 1.0 / SCALE));
+        return w;
+    }
+
+    /* Returns SCALE * moves + weight * h, the queue key for a weight in
+     * 1/SCALE units. Throws ArithmeticException if it overflows an int. */
+    static int key(int weight, int moves, int h) {
+        return Math.addExact(SCALE * moves, Math.multiplyExact(weight, h));
+    }
+
+    /* Returns the queue key of a node with the given moves and estimate. */
+    private int key(int moves, int h) {
+        return key(weight, moves, h);
+    }
+
+    /* Returns true if node i holds the goal state. */
+    private boolean isGoal(int i) {
+        if (nodes.blank(i) != N * N - 1)
+            return false;
+        int off = nodes.offset(i);
+        return Arrays.equals(nodes.states(), off, off + scratch.length,
+                             goalState, 0, goalState.length);
+    }
+}
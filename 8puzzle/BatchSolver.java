@@ -0,0 +1,265 @@
+/*
+ * Compilation:  javac-algs4 BatchSolver.java
+ * Execution:
+ * Dependencies: Board.java, BoardFile.java, Solver.java, SolverOptions.java,
+ *               SearchLimitException.java
+ *
+ * Description: Solves many puzzle files, or the boards of a board file (see
+ *              BoardFile.java), on a fixed pool of worker threads. Puzzles
+ *              are read and parsed on the workers. At most a small window of
+ *              puzzles is in flight at a time, so memory stays bounded
+ *              however many puzzles there are. Each puzzle gets the
+ *              time and memory limits of the SolverOptions.
+ *              Results are written by the calling thread, one line per puzzle,
+ *              as they complete, or in input order if asked to (results that
+ *              finish early then wait in the window).
+ *              run() returns a Summary with throughput, solve time
+ *              percentiles and the number of puzzles over their limits.
+ */
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BatchSolver {
+
+    private SolverOptions options;
+    private int threads;
+    private boolean ordered;
+
+    /* The outcome of one puzzle. */
+    private static class Result {
+        private int index;
+        private String name;
+        private String outcome;  // moves, or why there are none
+        private boolean solved;  // solved or shown unsolvable
+        private boolean timeout;
+        private boolean memory;
+        private long nanos;
+    }
+
+    /* Totals over a batch. */
+    public static class Summary {
+        private int puzzles;
+        private int solved;
+        private int timeouts;
+        private int memoryOuts;
+        private int errors;
+        private double seconds;
+        private long p50;   // nanoseconds
+        private long p99;
+
+        public int puzzles()    { return puzzles; }
+        public int solved()     { return solved; }
+        public int timeouts()   { return timeouts; }
+        public int memoryOuts() { return memoryOuts; }
+        public int errors()     { return errors; }
+        public double seconds() { return seconds; }
+
+        /* Returns puzzles finished per second of wall time. */
+        public double throughput() {
+            return seconds > 0 ? puzzles / seconds : 0;
+        }
+
+        /* Returns the median solve time in milliseconds. */
+        public double p50() {
+            return p50 / 1e6;
+        }
+
+        /* Returns the 99th percentile solve time in milliseconds. */
+        public double p99() {
+            return p99 / 1e6;
+        }
+
+        public String toString() {
+            return String.format("%d puzzles in %.2fs (%.1f/s), %d solved, "
+                                 + "%d timeouts, %d over memory, %d errors, "
+                                 + "p50 %.2fms, p99 %.2fms",
+                                 puzzles, seconds, throughput(), solved,
+                                 timeouts, memoryOuts, errors, p50(), p99());
+        }
+    }
+
+    /* Solves with the given options on the given number of threads, writing
+     * results in completion order, or in input order if ordered is true. */
+    public BatchSolver(SolverOptions options, int threads, boolean ordered) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Need at least one thread");
+        this.options = options;
+        this.threads = threads;
+        this.ordered = ordered;
+    }
+
+    /* Where the puzzles of a batch come from: puzzle i is named name(i) and
+     * read by board(i), on a worker. */
+    private interface Source {
+        int size();
+        String name(int i);
+        Board board(int i) throws IOException;
+    }
+
+    /* Solves every file and writes "filename: moves" for each to out (-1 for
+     * unsolvable boards, "timeout" or "out of memory" for boards over their
+     * limits, "moves (gap g)" for solutions up to g moves longer than the
+     * minimum). */
+    public Summary run(List<String> files, PrintWriter out)
+        throws InterruptedException {
+        return run(new Source() {
+            public int size()          { return files.size(); }
+            public String name(int i)  { return files.get(i); }
+            public Board board(int i) throws IOException {
+                return read(files.get(i));
+            }
+        }, out);
+    }
+
+    /* Solves every board in a board file and writes "filename[i]: moves" for
+     * board i to out, as run() above does for text files. */
+    public Summary run(BoardFile boards, String name, PrintWriter out)
+        throws InterruptedException {
+        if (boards.size() > Integer.MAX_VALUE)
+            throw new IllegalArgumentException(name + " has too many boards");
+        return run(new Source() {
+            public int size()          { return (int) boards.size(); }
+            public String name(int i)  { return name + "[" + i + "]"; }
+            public Board board(int i)  { return boards.board(i); }
+        }, out);
+    }
+
+    private Summary run(Source source, PrintWriter out)
+        throws InterruptedException {
+        int count = source.size();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ExecutorCompletionService<Result> done =
+            new ExecutorCompletionService<Result>(pool);
+        int window = 4 * threads;
+        HashMap<Integer, Result> waiting = new HashMap<Integer, Result>();
+        long[] times = new long[count];
+        Summary summary = new Summary();
+        long start = System.nanoTime();
+        int submitted = 0;
+        int written = 0;
+        try {
+            while (written < count) {
+                while (submitted < count && submitted - written < window) {
+                    final int index = submitted++;
+                    done.submit(() -> solve(index, source));
+                }
+                Future<Result> next = done.poll();
+                if (next == null) {
+                    out.flush();
+                    next = done.take();
+                }
+                Result r = next.get();
+                record(r, summary, times);
+                if (!ordered) {
+                    write(r, out);
+                    written++;
+                    continue;
+                }
+                waiting.put(r.index, r);
+                while (waiting.containsKey(written))
+                    write(waiting.remove(written++), out);
+            }
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+            out.flush();
+        }
+        summary.seconds = (System.nanoTime() - start) / 1e9;
+        times = Arrays.copyOf(times, summary.solved);
+        Arrays.sort(times);
+        if (times.length > 0) {
+            summary.p50 = times[(times.length - 1) / 2];
+            summary.p99 = times[(int) Math.ceil(0.99 * times.length) - 1];
+        }
+        return summary;
+    }
+
+    /* Reads and solves one puzzle. Never throws: failures become
+     * results. */
+    private Result solve(int index, Source source) {
+        Result r = new Result();
+        r.index = index;
+        r.name = source.name(index);
+        long start = System.nanoTime();
+        try {
+            Solver solver = new Solver(source.board(index), options);
+            r.outcome = Integer.toString(solver.moves());
+            if (solver.gap() > 0)
+                r.outcome += " (gap " + solver.gap() + ")";
+            r.solved = true;
+        }
+        catch (SearchLimitException e) {
+            r.timeout = e.isTimeout();
+            r.memory = !e.isTimeout();
+            r.outcome = r.timeout ? "timeout" : "out of memory";
+        }
+        catch (OutOfMemoryError e) {
+            r.memory = true;
+            r.outcome = "out of memory";
+        }
+        catch (Exception e) {
+            r.outcome = "error " + e;
+        }
+        r.nanos = System.nanoTime() - start;
+        return r;
+    }
+
+    private static void record(Result r, Summary summary, long[] times) {
+        summary.puzzles++;
+        if (r.solved)
+            times[summary.solved++] = r.nanos;
+        else if (r.timeout)
+            summary.timeouts++;
+        else if (r.memory)
+            summary.memoryOuts++;
+        else
+            summary.errors++;
+    }
+
+    private static void write(Result r, PrintWriter out) {
+        out.println(r.name + ": " + r.outcome);
+    }
+
+    /* Reads a board in the text format (N followed by N^2 tiles) from a
+     * file, scanning the bytes directly. */
+    static Board read(String name) throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get(name));
+        int[] at = { 0 };
+        int N = nextInt(data, at, name);
+        int[][] tiles = new int[N][N];
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++)
+                tiles[i][j] = nextInt(data, at, name);
+        return new Board(tiles);
+    }
+
+    /* Returns the next non-negative integer in data at or after at[0] and
+     * moves at[0] past it. */
+    private static int nextInt(byte[] data, int[] at, String name)
+        throws IOException {
+        int i = at[0];
+        while (i < data.length && (data[i] < '0' || data[i] > '9'))
+            i++;
+        if (i == data.length)
+            throw new IOException(name + " ends early");
+        int value = 0;
+        while (i < data.length && data[i] >= '0' && data[i] <= '9')
+            value = 10 * value + data[i++] - '0';
+        at[0] = i;
+        return value;
+    }
+}
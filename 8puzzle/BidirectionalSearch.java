@@ -0,0 +1,167 @@
+/*
+ * Compilation:  javac-algs4 BidirectionalSearch.java
+ * Execution:
+ * Dependencies: Board.java, NodePool.java, BucketQueue.java, StateTable.java,
+ *               Heuristic.java, Heuristics.java, Search.java,
+ *               SearchBudget.java
+ *
+ * Description: Bidirectional "meet in the middle" (MM) search: one A*-like
+ *              search forward from the start board toward the goal and one
+ *              backward from the goal toward the start, each using the
+ *              empty block's moves, so the backward search's moves reversed
+ *              are moves forward. The forward search uses the given
+ *              heuristic, the backward one manhattan distance to the start
+ *              board.
+ *              Both searches share one table from states to the best node
+ *              each has for the state, so a state generated by one search
+ *              that the other has reached is a meeting point, and the
+ *              shortest path through a meeting point found so far is kept.
+ *              Nodes are queued by max(moves + estimate, 2 * moves), which
+ *              keeps each search from going past the middle, and the search
+ *              with the smaller minimum goes next. Once the best path is no
+ *              longer than the smaller minimum, it is a shortest one.
+ */
+
+import java.util.Arrays;
+
+class BidirectionalSearch implements Search {
+
+    private static final int FORWARD = 0;
+    private static final int BACKWARD = 1;
+    /* Rough bytes per node besides its state: its ints in the pool and its
+     * share of the table. States take one copy in each. */
+    private static final int NODE_BYTES = 32;
+    /* Rough bytes per queue entry: its link in the bucket. */
+    private static final int QUEUE_BYTES = 4;
+
+    private NodePool nodes;
+    /* Every state reached by either search, mapped to an entry. */
+    private StateTable table;
+    private int entries;
+    /* best[side][entry] is the best node of that search for the entry's
+     * state, -1 if it hasn't reached it. */
+    private int[][] best;
+    private BucketQueue[] open;
+    private Heuristic[] heuristic;
+    private int N;
+    private long[] scratch;
+    private SearchBudget budget;
+    private SolverStats stats;
+    /* Length of the shortest path found so far and the forward and
+     * backward node it goes through. */
+    private int shortest = Integer.MAX_VALUE;
+    private int[] meet = { -1, -1 };
+
+    /* Starts a search from the given board. */
+    public BidirectionalSearch(Board start, Heuristic heuristic,
+                               SearchBudget budget) {
+        this.budget = budget;
+        stats = budget.stats();
+        N = start.dimension();
+        scratch = new long[Board.words(N)];
+        nodes = new NodePool(scratch.length);
+        table = new StateTable(scratch.length);
+        best = new int[][] { new int[1024], new int[1024] };
+        Arrays.fill(best[FORWARD], -1);
+        Arrays.fill(best[BACKWARD], -1);
+        open = new BucketQueue[] { new BucketQueue(), new BucketQueue() };
+        this.heuristic = new Heuristic[] {
+            heuristic, Heuristics.manhattanTo(start)
+        };
+        add(FORWARD, start.packed(), start.blankIndex(), -1, 0);
+        add(BACKWARD, Board.goal(N), N * N - 1, -1, 0);
+    }
+
+    /* Stops if the best path found is a shortest one. Otherwise expands the
+     * node with the lowest priority in the search whose lowest priority is
+     * smaller, skipping it if the same search has since reached its state
+     * in fewer moves. */
+    public boolean step() {
+        if (open[FORWARD].isEmpty() || open[BACKWARD].isEmpty()) {
+            if (meet[FORWARD] < 0)
+                throw new IllegalStateException("No solution from a solvable board");
+            return true;
+        }
+        int fwd = open[FORWARD].minPriority();
+        int bwd = open[BACKWARD].minPriority();
+        if (shortest <= Math.min(fwd, bwd))
+            return true;
+        int side = fwd <= bwd ? FORWARD : BACKWARD;
+        int i = open[side].delMin();
+        if (best[side][table.get(nodes.states(), nodes.offset(i))] != i)
+            return false;
+        if (++stats.expanded % 1024 == 0)
+            budget.check(nodes.size() * (NODE_BYTES + 16L * scratch.length)
+                         + (long) (open[FORWARD].size() + open[BACKWARD].size())
+                         * QUEUE_BYTES);
+        int blank = nodes.blank(i);
+        int parent = nodes.parent(i);
+        for (int dir = Board.UP; dir <= Board.RIGHT; dir++) {
+            int to = Board.target(N, blank, dir);
+            if (to < 0 || (parent >= 0 && to == nodes.blank(parent)))
+                continue;
+            nodes.state(i, scratch);
+            Board.slide(scratch, scratch, N, blank, to);
+            add(side, scratch, to, i, dir);
+        }
+        stats.frontier(open[FORWARD].size() + open[BACKWARD].size());
+        return false;
+    }
+
+    /* Returns the forward moves to the meeting point followed by the
+     * backward moves to it, reversed. */
+    public byte[] path() {
+        byte[] fwd = nodes.path(meet[FORWARD]);
+        byte[] bwd = nodes.path(meet[BACKWARD]);
+        byte[] path = Arrays.copyOf(fwd, fwd.length + bwd.length);
+        for (int k = 0; k < bwd.length; k++)
+            path[fwd.length + k] = (byte) (bwd[bwd.length - 1 - k] ^ 1);
+        return path;
+    }
+
+    /* Adds a node for the state to the given search, reached from node
+     * parent by moving the empty block in direction dir, unless the search
+     * already reached the state in as few moves. parent is -1 for the start
+     * of a search. Records the path through the state if the other search
+     * has reached it too and the path is the shortest so far. */
+    private void add(int side, long[] state, int blank, int parent, int dir) {
+        int e = table.get(state, 0);
+        if (e < 0) {
+            e = entries++;
+            if (e == best[FORWARD].length) {
+                for (int s = FORWARD; s <= BACKWARD; s++) {
+                    best[s] = Arrays.copyOf(best[s], 2 * e);
+                    Arrays.fill(best[s], e, 2 * e, -1);
+                }
+            }
+            table.put(state, 0, e);
+        }
+        int moves = parent < 0 ? 0 : nodes.moves(parent) + 1;
+        int seen = best[side][e];
+        stats.generated++;
+        if (seen >= 0 && nodes.moves(seen) <= moves) {
+            stats.duplicates++;
+            return;
+        }
+        stats.heuristicEvals++;
+        int i;
+        if (parent < 0)
+            i = nodes.add(state, blank, heuristic[side].estimate(state, N));
+        else {
+            int from = Board.target(N, blank, dir ^ 1);
+            int tile = Board.tileAt(state, N, from);
+            int h = heuristic[side].update(state, N, nodes.estimate(parent),
+                                           tile, blank, from);
+            i = nodes.add(state, blank, h, parent, dir);
+        }
+        best[side][e] = i;
+        int h = nodes.estimate(i);
+        open[side].insert(i, Math.max(moves + h, 2 * moves), moves);
+        int other = best[1 - side][e];
+        if (other >= 0 && moves + nodes.moves(other) < shortest) {
+            shortest = moves + nodes.moves(other);
+            meet[side] = i;
+            meet[1 - side] = other;
+        }
+    }
+}
@@ -1,39 +1,61 @@
 /*
  * Daniel Chen
  * 10/29/13
- * 
+ *
  * Compilation:  javac-algs4 Board.java
  * Execution:
  * Dependencies: algs4 standard libraries
  *
  * Description: An NxN board of integers for the 8-puzzle (or (N^2-1)-puzzle).
+ *              The board is stored in a packed form: 4 bits per tile for
+ *              N <= 4 (one long for the whole board), one byte per tile for
+ *              N <= 16 and two bytes per tile beyond that. The static helpers
+ *              at the bottom of the file work directly on packed states so
+ *              that Solver can generate neighbors without allocating boards.
  */
 
+import java.util.Arrays;
+
 public class Board {
 
+    /* Directions in which the empty block can move. A move in direction d is
+     * undone by a move in direction d ^ 1. */
+    static final int UP = 0;
+    static final int DOWN = 1;
+    static final int LEFT = 2;
+    static final int RIGHT = 3;
+
     private int N;
-    private int[][] board;
-    /* Row and column indices for the empty block, which should be a 0.
-     * That is, board[emptyRow][emptyCol] == 0. */
-    private int emptyRow;
-    private int emptyCol;
+    /* Packed tiles in row-major order. See tileAt() for the layout. */
+    private long[] state;
+    /* Row-major index of the empty block, which should be a 0.
+     * That is, tileAt(state, N, blank) == 0. */
+    private int blank;
 
     /* Constructor */
     public Board(int[][] blocks) {
         // Assume blocks is a square matrix
         N = blocks.length;
-        board = new int[N][N];
+        if (N < 2 || N > 256)
+            throw new IllegalArgumentException("Board size must be from 2 to 256");
+        state = new long[words(N)];
         for (int i = 0; i < N; i++) {
             for (int j = 0; j < N; j++) {
-                if (blocks[i][j] == 0) {
-                    emptyRow = i;
-                    emptyCol = j;
-                }
-                board[i][j] = blocks[i][j];
+                if (blocks[i][j] == 0)
+                    blank = i * N + j;
+                setTile(state, N, i * N + j, blocks[i][j]);
             }
         }
     }
 
+    /* Constructs a board directly from a packed state. The state is not
+     * copied. */
+    Board(long[] state, int N, int blank) {
+        this.N = N;
+        this.state = state;
+        this.blank = blank;
+    }
+
     /* Returns the size of the board. */
     public int dimension() {
         return N;
@@ -46,12 +68,10 @@ public class Board {
     public int hamming() {
         int block;
         int total = 0;
-        for (int i = 0; i < N; i++) {
-            for (int j = 0; j < N; j++) {
-                block = board[i][j];
-                if (block != 0)
-                    total += hammingDistance(block, i, j);
-            }
+        for (int i = 0; i < N * N; i++) {
+            block = tileAt(state, N, i);
+            if (block != 0 && block != i + 1)
+                total++;
         }
         return total;
     }
@@ -61,16 +81,7 @@ public class Board {
      * rows + columns of the element to its final position.
      */
     public int manhattan() {
-        int block;
-        int total = 0;
-        for (int i = 0; i < N; i++) {
-            for (int j = 0; j < N; j++) {
-                block = board[i][j];
-                if (block != 0)
-                    total += manhattanDistance(block, i, j);
-            }
-        }
-        return total;
+        return manhattan(state, N);
     }
 
     /* Returns true if the board is finished. A finished 3x3 board is as follows:
@@ -87,17 +98,13 @@ public class Board {
     /* Returns a copy of the board with the first two elements of one of the
      * first two rows swapped. */
     public Board twin() {
-        int tmp;
-        Board twinBoard = new Board(this.copy());
+        long[] copy = state.clone();
         // Switch row 1 if there's an empty block in first blocks of row 0
-        if (board[0][0] == 0 || board[0][1] == 0) {
-            twinBoard.swap(1, 0, 1, 1);
-        }   
-        // Switch row 0 if there's no empty block in first blocks of row 0
-        else {
-            twinBoard.swap(0, 0, 0, 1);
-        }
-        return twinBoard;
+        int first = (blank == 0 || blank == 1) ? N : 0;
+        int tmp = tileAt(copy, N, first);
+        setTile(copy, N, first, tileAt(copy, N, first + 1));
+        setTile(copy, N, first + 1, tmp);
+        return new Board(copy, N, blank);
     }
 
     /* Returns true if the elements of two board matrices are equal and false
@@ -108,13 +115,12 @@ public class Board {
         if (y.getClass() != this.getClass()) return false;
         Board that = (Board) y;
         if (that.N != this.N) return false;
-        for (int i = 0; i < N; i++) {
-            for (int j = 0; j < N; j++) {
-                if (that.board[i][j] != this.board[i][j])
-                    return false;
-            }
-        }
-        return true;
+        return Arrays.equals(that.state, this.state);
+    }
+
+    /* Returns a hash of the packed state, consistent with equals(). */
+    public int hashCode() {
+        return hash(state, 0, state.length);
     }
 
     /* Returns a queue of all the neighboring boards (possible configurations after
@@ -123,30 +129,10 @@ public class Board {
     public Iterable<Board> neighbors() {
         // Queue is from algs4 library
         Queue<Board> q = new Queue<Board>();
-        Board copy;
-        // Swap with upper block (row-1)
-        if (emptyRow > 0) {
-            copy = new Board(this.copy());
-            copy.swap(emptyRow, emptyCol, emptyRow-1, emptyCol);
-            q.enqueue(copy);
-        }
-        // Swap with lower block (row+1)
-        if (emptyRow < N-1) {
-            copy = new Board(this.copy());
-            copy.swap(emptyRow, emptyCol, emptyRow+1, emptyCol);
-            q.enqueue(copy);
-        }
-        // Swap with left block (col-1)
-        if (emptyCol > 0) {
-            copy = new Board(this.copy());
-            copy.swap(emptyRow, emptyCol, emptyRow, emptyCol-1);
-            q.enqueue(copy);
-        }
-        // Swap with right block (col+1)
-        if (emptyCol < N-1) {
-            copy = new Board(this.copy());
-            copy.swap(emptyRow, emptyCol, emptyRow, emptyCol+1);
-            q.enqueue(copy);
+        for (int dir = UP; dir <= RIGHT; dir++) {
+            Board next = move(dir);
+            if (next != null)
+                q.enqueue(next);
         }
         return q;
     }
@@ -157,61 +143,157 @@ public class Board {
         s.append(N + "\n");
         for (int i = 0; i < N; i++) {
             for (int j = 0; j < N; j++) {
-                s.append(String.format("%2d ", board[i][j]));
+                s.append(String.format("%2d ", tileAt(state, N, i * N + j)));
             }
             s.append("\n");
         }
         return s.toString();
     }
 
-    /* Returns the hamming distance of an element to its final position.
-     * 0 if the element is in its final position, 1 if it isn't.
-     */
-    private int hammingDistance(int block, int i, int j) {
-        int goalRow = (block - 1) / N;
-        int goalCol = (block - 1) % N;
-        if (goalRow == i && goalCol == j)
-            return 0;
-        return 1;
-    }
-
-    /* Returns the manhattan distance of an element to its final position.
-     * The difference in rows + columns between the current position and the
-     * final position. Equivalently, the fewest number of swaps between
-     * the current element and an adjacent element to get to its final
-     * position.
-     */
-    private int manhattanDistance(int block, int i, int j) {
-        int goalRow = (block - 1) / N;
-        int goalCol = (block - 1) % N;
-        return Math.abs(goalRow - i) + Math.abs(goalCol - j);
+    /* Returns the board reached by moving the empty block in direction dir,
+     * or null if that would move it off the board. */
+    Board move(int dir) {
+        int to = target(N, blank, dir);
+        if (to < 0)
+            return null;
+        long[] next = new long[state.length];
+        slide(state, next, N, blank, to);
+        return new Board(next, N, to);
+    }
+
+    /* Returns the board mirrored in its main diagonal, with every tile
+     * renamed to the tile whose final position is the mirror image of its
+     * own. The goal board is its own mirror image, and moving the empty
+     * block UP (DOWN) on a board is moving it LEFT (RIGHT) on the mirror
+     * image, so a solution of one is a solution of the other with those
+     * directions swapped (dir ^ 2). */
+    Board transpose() {
+        long[] next = new long[state.length];
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                int tile = tileAt(state, N, i * N + j);
+                if (tile != 0)
+                    tile = (tile - 1) % N * N + (tile - 1) / N + 1;
+                setTile(next, N, j * N + i, tile);
+            }
+        }
+        return new Board(next, N, blank % N * N + blank / N);
     }
 
-    /* Returns a copy of the board matrix. */
-    private int[][] copy() {
-        int[][] copy = new int[N][N];
-        for (int i = 0; i < N; i++)
-            for (int j = 0; j < N; j++)
-                copy[i][j] = board[i][j];
-        return copy;
+    /* Returns a copy of the packed state. */
+    long[] packed() {
+        return state.clone();
     }
 
-    /* Swaps the positions of two elements at (r1, c1) and (r2, c2) on the
-     * board.
+    /* Returns the row-major index of the empty block. */
+    int blankIndex() {
+        return blank;
+    }
+
+    /*
+     * Packed state helpers. Tile i (in row-major order) occupies bits
+     * [i * b, (i + 1) * b) of the state, where b = 1 << logBits(N) is 4, 8 or
+     * 16. b always divides 64, so a tile never straddles two words.
      */
-    private void swap(int r1, int c1, int r2, int c2) {
-        int tmp = board[r1][c1];
-        board[r1][c1] = board[r2][c2];
-        board[r2][c2] = tmp;
-        // Be sure to update (emptyRow, emptyCol) if a 0 was swapped.
-        if (board[r1][c1] == 0) {
-            emptyRow = r1;
-            emptyCol = c1;
+
+    /* Returns log2 of the number of bits used per tile. */
+    static int logBits(int N) {
+        if (N <= 4) return 2;
+        if (N <= 16) return 3;
+        return 4;
+    }
+
+    /* Returns the number of longs in a packed N x N state. */
+    static int words(int N) {
+        return ((N * N << logBits(N)) + 63) >>> 6;
+    }
+
+    /* Returns the tile at row-major index i of a packed state. */
+    static int tileAt(long[] s, int N, int i) {
+        int lb = logBits(N);
+        int bit = i << lb;
+        return (int) (s[bit >>> 6] >>> (bit & 63)) & ((1 << (1 << lb)) - 1);
+    }
+
+    /* Sets the tile at row-major index i of a packed state. */
+    static void setTile(long[] s, int N, int i, int tile) {
+        int lb = logBits(N);
+        int bit = i << lb;
+        long mask = ((1L << (1 << lb)) - 1) << (bit & 63);
+        s[bit >>> 6] = (s[bit >>> 6] & ~mask) | (((long) tile << (bit & 63)) & mask);
+    }
+
+    /* Returns the row-major index of a tile (not the empty block) in a
+     * packed state, -1 if it isn't there. Each word is compared with the
+     * tile in every field at once: x = word ^ copies is zero in the tile's
+     * field, and (x - ones) & ~x & highs flags the lowest zero field
+     * exactly (fields above it may be flagged falsely, by a borrow). */
+    static int indexOf(long[] s, int N, int tile) {
+        int lb = logBits(N);
+        long ones = Long.divideUnsigned(-1L, (1L << (1 << lb)) - 1);
+        long highs = ones << ((1 << lb) - 1);
+        long copies = ones * tile;
+        for (int w = 0, n = words(N); w < n; w++) {
+            long x = s[w] ^ copies;
+            long found = (x - ones) & ~x & highs;
+            if (found != 0)
+                return ((w << 6) + Long.numberOfTrailingZeros(found)) >>> lb;
         }
-        if (board[r2][c2] == 0) {
-            emptyRow = r2;
-            emptyCol = c2;
+        return -1;
+    }
+
+    /* Returns the packed goal state: tile i at index i - 1 and the empty
+     * block last. */
+    static long[] goal(int N) {
+        long[] s = new long[words(N)];
+        for (int i = 0; i < N * N - 1; i++)
+            setTile(s, N, i, i + 1);
+        return s;
+    }
+
+    /* Returns the index the empty block at index blank moves to in direction
+     * dir, or -1 if that would move it off the board. */
+    static int target(int N, int blank, int dir) {
+        switch (dir) {
+            case UP:    return blank >= N ? blank - N : -1;
+            case DOWN:  return blank < N * N - N ? blank + N : -1;
+            case LEFT:  return blank % N > 0 ? blank - 1 : -1;
+            default:    return blank % N < N - 1 ? blank + 1 : -1;
+        }
+    }
+
+    /* Writes to dst the state reached from src by sliding the tile at index
+     * to into the empty block at index blank. src and dst may be the same
+     * array. No allocation takes place. */
+    static void slide(long[] src, long[] dst, int N, int blank, int to) {
+        if (src != dst)
+            System.arraycopy(src, 0, dst, 0, src.length);
+        setTile(dst, N, blank, tileAt(src, N, to));
+        setTile(dst, N, to, 0);
+    }
+
+    /* Returns the manhattan distance of a packed state. */
+    static int manhattan(long[] s, int N) {
+        int block;
+        int total = 0;
+        for (int i = 0; i < N * N; i++) {
+            block = tileAt(s, N, i);
+            if (block != 0)
+                total += Math.abs((block - 1) / N - i / N)
+                       + Math.abs((block - 1) % N - i % N);
         }
+        return total;
+    }
 
+    /* Returns a well-mixed hash of the words [off, off + len) of a packed
+     * state (or of a table holding packed states back to back). */
+    static int hash(long[] s, int off, int len) {
+        long h = 0;
+        for (int i = off; i < off + len; i++) {
+            h = (h ^ s[i]) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 32;
+        }
+        h *= 0xD6E8FEB86659FD93L;
+        return (int) (h ^ (h >>> 32));
     }
 }
@@ -0,0 +1,333 @@
+/*
+ * Compilation:  javac-algs4 BoardFile.java
+ * Execution:    java-algs4 BoardFile output.bin [input1.txt input2.txt ...]
+ *               e.g. java-algs4 BoardGenerator 3 1000000 | java-algs4 BoardFile boards.bin
+ * Dependencies: Board.java
+ *
+ * Description: A binary file of many boards of the same dimension, back to
+ *              back. Each board is stored as its packed state (see Board.java),
+ *              so reading one is copying a few longs rather than parsing
+ *              text. The file is memory mapped read-only, so opening it takes
+ *              no time, boards are read straight from the page cache, and
+ *              any number of threads can read it at once.
+ *
+ *              File layout (big-endian):
+ *              int MAGIC, int N, long count, then count packed states of
+ *              Board.words(N) longs each.
+ *
+ *              main() converts boards in the text format (N followed by N^2
+ *              tiles, any number of boards one after another per file, as
+ *              BoardGenerator writes them) from the input files, or from
+ *              standard input if there are none, to a binary file.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+public class BoardFile {
+
+    static final int MAGIC = 0x4e504231; // "NPB1"
+    private static final int HEADER = 16;
+
+    private String name;
+    private int N;
+    private int words;
+    private long count;
+    /* The boards, in segments of perSegment boards each, since one mapping
+     * is at most 2GB. */
+    private MappedByteBuffer[] segments;
+    private int perSegment;
+
+    /* Opens the board file with the given name. */
+    public BoardFile(String name) throws IOException {
+        this.name = name;
+        RandomAccessFile raf = new RandomAccessFile(name, "r");
+        try {
+            if (raf.length() < HEADER || raf.readInt() != MAGIC)
+                throw new IOException(name + " is not a board file");
+            N = raf.readInt();
+            count = raf.readLong();
+            if (N < 2 || N > 256 || count < 0)
+                throw new IOException(name + " has a bad header");
+            words = Board.words(N);
+            long bytes = 8L * words;
+            if (raf.length() != HEADER + count * bytes)
+                throw new IOException(name + " is truncated");
+            perSegment = (int) (Integer.MAX_VALUE / bytes);
+            segments = new MappedByteBuffer[(int) ((count + perSegment - 1)
+                                                   / perSegment)];
+            for (int s = 0; s < segments.length; s++) {
+                long first = (long) s * perSegment;
+                long boards = Math.min(perSegment, count - first);
+                segments[s] = raf.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                                                   HEADER + first * bytes,
+                                                   boards * bytes);
+            }
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /* Returns true if the file with the given name starts like a board
+     * file. */
+    public static boolean isBoardFile(String name) {
+        try (RandomAccessFile raf = new RandomAccessFile(name, "r")) {
+            return raf.length() >= HEADER && raf.readInt() == MAGIC;
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    /* Returns the dimension of the boards. */
+    public int dimension() {
+        return N;
+    }
+
+    /* Returns the number of boards. */
+    public long size() {
+        return count;
+    }
+
+    /* Returns board i. Throws IllegalArgumentException if the stored tiles
+     * aren't 0 to N^2 - 1 in some order. */
+    public Board board(long i) {
+        long[] state = new long[words];
+        int blank = state(i, state);
+        int C = N * N;
+        boolean[] seen = new boolean[C];
+        for (int k = 0; k < C; k++) {
+            int tile = Board.tileAt(state, N, k);
+            if (tile >= C || seen[tile])
+                throw new IllegalArgumentException(name + ": board " + i
+                                                   + " is not a permutation");
+            seen[tile] = true;
+        }
+        return new Board(state, N, blank);
+    }
+
+    /* Returns the boards in order. The stream may be made parallel. */
+    public Stream<Board> boards() {
+        return LongStream.range(0, count).mapToObj(this::board);
+    }
+
+    /* Copies the packed state of board i into dst and returns the index of
+     * its empty block (-1 if it has none). The state is not checked. */
+    int state(long i, long[] dst) {
+        if (i < 0 || i >= count)
+            throw new IndexOutOfBoundsException("Board " + i + " of " + count);
+        MappedByteBuffer segment = segments[(int) (i / perSegment)];
+        int at = (int) (i % perSegment) * words * 8;
+        for (int w = 0; w < words; w++)
+            dst[w] = segment.getLong(at + 8 * w);
+        for (int k = 0; k < N * N; k++)
+            if (Board.tileAt(dst, N, k) == 0)
+                return k;
+        return -1;
+    }
+
+    /* Returns the packed states in order, each in a new array. */
+    Stream<long[]> states() {
+        return LongStream.range(0, count).mapToObj(i -> {
+            long[] state = new long[words];
+            state(i, state);
+            return state;
+        });
+    }
+
+    /* Writes the given boards, all of dimension N, to a board file with the
+     * given name. Returns the number of boards written. */
+    public static long write(String name, int N, Iterable<Board> boards)
+        throws IOException {
+        if (N < 2 || N > 256)
+            throw new IllegalArgumentException("Board size must be from 2 to 256");
+        long count = 0;
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(name), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(N);
+            out.writeLong(0);
+            for (Board b : boards) {
+                if (b.dimension() != N)
+                    throw new IllegalArgumentException("Board of dimension "
+                                                       + b.dimension()
+                                                       + " in a file for " + N);
+                for (long word : b.packed())
+                    out.writeLong(word);
+                count++;
+            }
+        }
+        finally {
+            out.close();
+        }
+        RandomAccessFile raf = new RandomAccessFile(name, "rw");
+        try {
+            raf.seek(8);
+            raf.writeLong(count);
+        }
+        finally {
+            raf.close();
+        }
+        return count;
+    }
+
+    /* Converts text boards, one after another, from the given streams in
+     * order to the binary file with the given name. Returns the number of
+     * boards written. If the text is bad, throws IOException and deletes
+     * the partly written file. */
+    static long convert(InputStream[] ins, String name) throws IOException {
+        TextBoards text = new TextBoards(ins);
+        if (!text.hasNext())
+            throw new IOException("No boards to convert");
+        long count;
+        try {
+            count = write(name, text.N, () -> text);
+            if (text.failure != null)
+                throw text.failure;
+        }
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(Paths.get(name));
+            throw e;
+        }
+        return count;
+    }
+
+    /* Boards parsed from text as they are written, one board ahead. The
+     * text may hold only digits and white space, and each board must be
+     * a dimension from 2 to 256 followed by a permutation of 0 to N^2 - 1,
+     * all in one stream. An IOException ends the boards and is kept in
+     * failure. */
+    private static class TextBoards implements Iterator<Board> {
+        private InputStream[] ins;
+        private int in;
+        private int N = -1;  // dimension of the first board
+        private long boards; // boards read so far, for error messages
+        private Board ahead;
+        private IOException failure;
+
+        TextBoards(InputStream[] ins) throws IOException {
+            this.ins = ins;
+            advance();
+            if (failure != null)
+                throw failure;
+        }
+
+        public boolean hasNext() {
+            return ahead != null;
+        }
+
+        public Board next() {
+            if (ahead == null)
+                throw new NoSuchElementException();
+            Board b = ahead;
+            advance();
+            return b;
+        }
+
+        /* Reads the next board into ahead, or sets it to null at the end of
+         * the last stream or on an error. */
+        private void advance() {
+            ahead = null;
+            try {
+                int n = nextInt(false);
+                if (n < 0)
+                    return;
+                if (n < 2 || n > 256)
+                    throw new IOException("Board " + boards + " has dimension "
+                                          + n + ", not 2 to 256");
+                if (N < 0)
+                    N = n;
+                if (n != N)
+                    throw new IOException("Board of dimension " + n
+                                          + " after boards of " + N);
+                int[][] tiles = new int[N][N];
+                boolean[] seen = new boolean[N * N];
+                for (int i = 0; i < N; i++) {
+                    for (int j = 0; j < N; j++) {
+                        int tile = nextInt(true);
+                        if (tile >= N * N || seen[tile])
+                            throw new IOException("Board " + boards
+                                                  + " is not a permutation of 0 to "
+                                                  + (N * N - 1));
+                        seen[tile] = true;
+                        tiles[i][j] = tile;
+                    }
+                }
+                ahead = new Board(tiles);
+                boards++;
+            }
+            catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        /* Returns the next non-negative integer, moving on to the next
+         * stream at the end of one, or -1 after the last. inBoard is true
+         * when the integer is a tile, which must be in the same stream as
+         * its board's dimension. */
+        private int nextInt(boolean inBoard) throws IOException {
+            while (in < ins.length) {
+                int c = ins[in].read();
+                while (c >= 0 && isSpace(c))
+                    c = ins[in].read();
+                if (c < 0) {
+                    if (inBoard)
+                        throw new IOException("Input " + in + " ends in board "
+                                              + boards);
+                    in++;
+                    continue;
+                }
+                int value = 0;
+                while (c >= 0 && !isSpace(c)) {
+                    if (c < '0' || c > '9')
+                        throw new IOException("Unexpected '" + (char) c
+                                              + "' in board " + boards);
+                    if (value > (Integer.MAX_VALUE - (c - '0')) / 10)
+                        throw new IOException("Number too large in board "
+                                              + boards);
+                    value = 10 * value + c - '0';
+                    c = ins[in].read();
+                }
+                return value;
+            }
+            return -1;
+        }
+
+        private static boolean isSpace(int c) {
+            return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        InputStream[] ins = new InputStream[Math.max(1, args.length - 1)];
+        if (args.length == 1)
+            ins[0] = new BufferedInputStream(System.in, 1 << 16);
+        for (int i = 1; i < args.length; i++)
+            ins[i - 1] = new BufferedInputStream(new FileInputStream(args[i]),
+                                                 1 << 16);
+        try {
+            long count = convert(ins, args[0]);
+            StdOut.println(count + " boards written to " + args[0]);
+        }
+        finally {
+            for (InputStream in : ins)
+                in.close();
+        }
+    }
+}
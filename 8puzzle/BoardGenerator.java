@@ -0,0 +1,181 @@
+/*
+ * Compilation:  javac-algs4 BoardGenerator.java
+ * Execution:    java-algs4 BoardGenerator N count [-d depth] [-s seed] [-j threads]
+ *               e.g. java-algs4 BoardGenerator 4 1000000 -j 8 > boards.txt
+ *                    java-algs4 BoardGenerator 3 100 -d 20
+ * Dependencies: Board.java, Solver.java
+ *
+ * Description: Generates random solvable boards, either uniformly at random
+ *              among all solvable boards of a dimension or by a random walk
+ *              of the empty block from the goal board, a given number of
+ *              moves long (never undoing the move before). A uniformly
+ *              random board is a random permutation of the tiles; if it
+ *              isn't solvable, the first two tiles are swapped, which pairs
+ *              every unsolvable board with one solvable board, so the
+ *              result is still uniform.
+ *              Boards are made in chunks on several threads. Each chunk has
+ *              its own SplittableRandom split off one seeded generator in
+ *              chunk order, so the boards depend only on the seed, not on
+ *              the number of threads.
+ *              main() writes the boards to standard output in the puzzle
+ *              file format, one after another.
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BoardGenerator {
+
+    /* Boards per chunk. */
+    private static final int CHUNK = 4096;
+
+    private int N;
+    private long seed;
+
+    /* Prepares to generate boards of dimension N from the given seed. */
+    public BoardGenerator(int N, long seed) {
+        if (N < 2 || N > 256)
+            throw new IllegalArgumentException("Board size must be from 2 to 256");
+        this.N = N;
+        this.seed = seed;
+    }
+
+    /* Returns count boards, uniformly random if depth is negative and random
+     * walks of depth moves otherwise, made on the given number of
+     * threads. */
+    public Board[] generate(int count, int depth, int threads)
+        throws InterruptedException {
+        if (count < 0)
+            throw new IllegalArgumentException("Count must not be negative");
+        if (threads < 1)
+            throw new IllegalArgumentException("Need at least one thread");
+        Board[] boards = new Board[count];
+        SplittableRandom master = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> chunks = new ArrayList<Future<?>>();
+        try {
+            for (int lo = 0; lo < count; lo += CHUNK) {
+                final int from = lo;
+                final int to = Math.min(count, lo + CHUNK);
+                final SplittableRandom rng = master.split();
+                chunks.add(pool.submit(() -> {
+                    for (int i = from; i < to; i++)
+                        boards[i] = depth < 0 ? random(N, rng)
+                                              : walk(N, depth, rng);
+                }));
+            }
+            for (Future<?> f : chunks)
+                f.get();
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        return boards;
+    }
+
+    /* Returns a board chosen uniformly at random among the solvable boards
+     * of dimension N. */
+    static Board random(int N, SplittableRandom rng) {
+        int C = N * N;
+        int[] tiles = new int[C];
+        for (int i = 0; i < C; i++) {
+            int j = rng.nextInt(i + 1);
+            tiles[i] = tiles[j];
+            tiles[j] = i;
+        }
+        long[] state = new long[Board.words(N)];
+        int blank = 0;
+        for (int i = 0; i < C; i++) {
+            Board.setTile(state, N, i, tiles[i]);
+            if (tiles[i] == 0)
+                blank = i;
+        }
+        Board board = new Board(state, N, blank);
+        if (Solver.isSolvable(board))
+            return board;
+        int a = blank == 0 ? 1 : 0;
+        int b = blank <= 1 ? 2 : 1;
+        Board.setTile(state, N, a, tiles[b]);
+        Board.setTile(state, N, b, tiles[a]);
+        return board;
+    }
+
+    /* Returns the board reached from the goal board by depth random moves of
+     * the empty block, none of them undoing the move before it. */
+    static Board walk(int N, int depth, SplittableRandom rng) {
+        long[] state = Board.goal(N);
+        int blank = N * N - 1;
+        int last = -1;
+        int[] targets = new int[4];
+        int[] dirs = new int[4];
+        for (int m = 0; m < depth; m++) {
+            int n = 0;
+            for (int dir = Board.UP; dir <= Board.RIGHT; dir++) {
+                int to = Board.target(N, blank, dir);
+                if (to >= 0 && dir != (last ^ 1)) {
+                    targets[n] = to;
+                    dirs[n++] = dir;
+                }
+            }
+            int pick = rng.nextInt(n);
+            Board.slide(state, state, N, blank, targets[pick]);
+            blank = targets[pick];
+            last = dirs[pick];
+        }
+        return new Board(state, N, blank);
+    }
+
+    /* Writes the board in the puzzle file format. */
+    static void write(Board board, Writer out) throws IOException {
+        int N = board.dimension();
+        long[] state = board.packed();
+        StringBuilder s = new StringBuilder(4 * N * N + 8);
+        s.append(N).append('\n');
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                if (j > 0)
+                    s.append(' ');
+                s.append(Board.tileAt(state, N, i * N + j));
+            }
+            s.append('\n');
+        }
+        out.write(s.toString());
+    }
+
+    public static void main(String[] args) throws Exception {
+        int N = Integer.parseInt(args[0]);
+        int count = Integer.parseInt(args[1]);
+        int depth = -1;
+        long seed = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("-d"))
+                depth = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-s"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("-j"))
+                threads = Integer.parseInt(args[++i]);
+            else
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+        Board[] boards = new BoardGenerator(N, seed).generate(count, depth,
+                                                              threads);
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out),
+                                        1 << 16);
+        for (Board b : boards)
+            write(b, out);
+        out.flush();
+    }
+}
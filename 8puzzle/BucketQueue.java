@@ -0,0 +1,103 @@
+/*
+ * Compilation:  javac-algs4 BucketQueue.java
+ * Execution:
+ * Dependencies:
+ *
+ * Description: A priority queue of search node indices for small non-negative
+ *              integer priorities. There is a bucket for every priority and,
+ *              inside it, one for every number of moves; delMin() takes from
+ *              the lowest priority and, within it, the most moves, which is
+ *              the node closest to a goal. Buckets are stacks linked through
+ *              an int[] indexed by node, so a node can be in the queue at
+ *              most once and nothing is allocated per insert. Priorities
+ *              only grow during A* with a consistent heuristic, so finding
+ *              the minimum is amortized constant time; with one that isn't
+ *              (PatternDatabase.java), an insert below the minimum just
+ *              moves it back.
+ */
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+class BucketQueue {
+
+    private int size;
+    private int min;        // no bucket below min holds a node
+    private int[] next;     // next node in the same bucket, -1 at the end
+    private int[][] heads;  // heads[priority][moves] first node, -1 if none
+    private int[] counts;   // nodes of each priority
+    private int[] top;      // no bucket of a priority holds more moves
+
+    /* Constructs an empty queue. */
+    public BucketQueue() {
+        next = new int[1024];
+        heads = new int[64][];
+        counts = new int[64];
+        top = new int[64];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /* Adds node i with the given priority and moves. */
+    public void insert(int i, int priority, int moves) {
+        if (priority < 0 || moves < 0)
+            throw new IllegalArgumentException("Negative priority or moves");
+        if (i >= next.length)
+            next = Arrays.copyOf(next, Math.max(2 * next.length, i + 1));
+        if (priority >= heads.length) {
+            int n = Math.max(2 * heads.length, priority + 1);
+            heads = Arrays.copyOf(heads, n);
+            counts = Arrays.copyOf(counts, n);
+            top = Arrays.copyOf(top, n);
+        }
+        int[] bucket = heads[priority];
+        if (bucket == null || moves >= bucket.length) {
+            int n = bucket == null ? 64 : bucket.length;
+            while (n <= moves)
+                n *= 2;
+            int old = bucket == null ? 0 : bucket.length;
+            bucket = bucket == null ? new int[n] : Arrays.copyOf(bucket, n);
+            Arrays.fill(bucket, old, n, -1);
+            heads[priority] = bucket;
+        }
+        next[i] = bucket[moves];
+        bucket[moves] = i;
+        if (moves > top[priority])
+            top[priority] = moves;
+        if (size == 0 || priority < min)
+            min = priority;
+        counts[priority]++;
+        size++;
+    }
+
+    /* Returns the lowest priority of a node in the queue. */
+    public int minPriority() {
+        if (size == 0)
+            throw new NoSuchElementException("Queue underflow");
+        while (counts[min] == 0)
+            min++;
+        return min;
+    }
+
+    /* Removes and returns the node with the lowest priority and, of those,
+     * the most moves. */
+    public int delMin() {
+        int p = minPriority();
+        int[] bucket = heads[p];
+        int g = top[p];
+        while (bucket[g] < 0)
+            g--;
+        top[p] = g;
+        int i = bucket[g];
+        bucket[g] = next[i];
+        counts[p]--;
+        size--;
+        return i;
+    }
+}
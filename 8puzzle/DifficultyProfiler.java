@@ -0,0 +1,190 @@
+/*
+ * Compilation:  javac-algs4 DifficultyProfiler.java
+ * Execution:    java-algs4 DifficultyProfiler N count [-d depth] [-s seed]
+ *                                             [-j threads] [-t millis]
+ *               e.g. java-algs4 DifficultyProfiler 4 1000 -d 60 -j 8
+ * Dependencies: Board.java, Solver.java, SolverOptions.java, SolverStats.java,
+ *               SearchLimitException.java, BoardGenerator.java
+ *
+ * Description: Solves a batch of boards on several threads and reports, for
+ *              each number of moves in a shortest solution, how many boards
+ *              needed that many and what solving them cost: nodes expanded
+ *              and solve time, on average and at most. Boards over the time
+ *              or memory limit are counted separately. Each thread keeps its
+ *              own totals, which are added up at the end.
+ *              main() profiles boards from BoardGenerator.
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DifficultyProfiler {
+
+    private SolverOptions options;
+    private int threads;
+
+    /* Totals by solution length. */
+    public static class Profile {
+        private int[] boards = new int[0];
+        private long[] expanded = new long[0];
+        private long[] nanos = new long[0];
+        private long[] maxExpanded = new long[0];
+        private long[] maxNanos = new long[0];
+        private int unsolvable;
+        private int overLimit;
+        private double seconds;
+
+        /* Returns the number of boards with shortest solutions of the given
+         * number of moves. */
+        public int boards(int moves) {
+            return moves < boards.length ? boards[moves] : 0;
+        }
+
+        /* Returns the longest shortest solution seen. */
+        public int maxMoves() {
+            return boards.length - 1;
+        }
+
+        public int unsolvable() { return unsolvable; }
+        public int overLimit()  { return overLimit; }
+
+        private void add(int moves, SolverStats stats) {
+            if (moves >= boards.length)
+                grow(moves + 1);
+            boards[moves]++;
+            expanded[moves] += stats.expanded();
+            nanos[moves] += stats.wallNanos();
+            maxExpanded[moves] = Math.max(maxExpanded[moves], stats.expanded());
+            maxNanos[moves] = Math.max(maxNanos[moves], stats.wallNanos());
+        }
+
+        private void add(Profile p) {
+            if (p.boards.length > boards.length)
+                grow(p.boards.length);
+            for (int m = 0; m < p.boards.length; m++) {
+                boards[m] += p.boards[m];
+                expanded[m] += p.expanded[m];
+                nanos[m] += p.nanos[m];
+                maxExpanded[m] = Math.max(maxExpanded[m], p.maxExpanded[m]);
+                maxNanos[m] = Math.max(maxNanos[m], p.maxNanos[m]);
+            }
+            unsolvable += p.unsolvable;
+            overLimit += p.overLimit;
+        }
+
+        private void grow(int n) {
+            boards = Arrays.copyOf(boards, n);
+            expanded = Arrays.copyOf(expanded, n);
+            nanos = Arrays.copyOf(nanos, n);
+            maxExpanded = Arrays.copyOf(maxExpanded, n);
+            maxNanos = Arrays.copyOf(maxNanos, n);
+        }
+
+        /* Returns a table with a line for every solution length. */
+        public String toString() {
+            StringBuilder s = new StringBuilder();
+            s.append(String.format("%5s %9s %14s %14s %10s %10s%n", "moves",
+                                   "boards", "mean expanded", "max expanded",
+                                   "mean ms", "max ms"));
+            int total = 0;
+            for (int m = 0; m < boards.length; m++) {
+                if (boards[m] == 0)
+                    continue;
+                total += boards[m];
+                s.append(String.format("%5d %9d %14.1f %14d %10.3f %10.3f%n",
+                                       m, boards[m],
+                                       (double) expanded[m] / boards[m],
+                                       maxExpanded[m],
+                                       nanos[m] / 1e6 / boards[m],
+                                       maxNanos[m] / 1e6));
+            }
+            s.append(String.format("%d solved, %d unsolvable, %d over limits "
+                                   + "in %.2fs (%.1f/s)", total, unsolvable,
+                                   overLimit, seconds,
+                                   seconds > 0 ? (total + unsolvable + overLimit)
+                                                 / seconds : 0));
+            return s.toString();
+        }
+    }
+
+    /* Profiles solves with the given options on the given number of
+     * threads. */
+    public DifficultyProfiler(SolverOptions options, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Need at least one thread");
+        this.options = options;
+        this.threads = threads;
+    }
+
+    /* Solves every board and returns the totals. */
+    public Profile run(Board[] boards) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        Profile[] parts = new Profile[threads];
+        Thread[] workers = new Thread[threads];
+        RuntimeException[] failure = new RuntimeException[1];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Profile part = new Profile();
+            parts[t] = part;
+            workers[t] = new Thread(() -> {
+                try {
+                    for (int i = next.getAndIncrement(); i < boards.length;
+                         i = next.getAndIncrement())
+                        solve(boards[i], part);
+                }
+                catch (RuntimeException e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            }, "profiler-" + t);
+            workers[t].start();
+        }
+        for (Thread w : workers)
+            w.join();
+        if (failure[0] != null)
+            throw failure[0];
+        Profile profile = new Profile();
+        for (Profile part : parts)
+            profile.add(part);
+        profile.seconds = (System.nanoTime() - start) / 1e9;
+        return profile;
+    }
+
+    private void solve(Board board, Profile part) {
+        try {
+            Solver solver = new Solver(board, options);
+            if (!solver.isSolvable())
+                part.unsolvable++;
+            else
+                part.add(solver.moves(), solver.stats());
+        }
+        catch (SearchLimitException e) {
+            part.overLimit++;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int N = Integer.parseInt(args[0]);
+        int count = Integer.parseInt(args[1]);
+        int depth = -1;
+        long seed = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        SolverOptions options = new SolverOptions();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("-d"))
+                depth = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-s"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("-j"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-t"))
+                options.timeLimit(Long.parseLong(args[++i]));
+            else
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+        Board[] boards = new BoardGenerator(N, seed).generate(count, depth,
+                                                              threads);
+        StdOut.println(new DifficultyProfiler(options, threads).run(boards));
+    }
+}
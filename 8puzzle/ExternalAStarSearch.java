@@ -0,0 +1,524 @@
+/*
+ * Compilation:  javac-algs4 ExternalAStarSearch.java
+ * Execution:
+ * Dependencies: algs4 standard libraries, Board.java, Heuristic.java,
+ *               Search.java, SearchBudget.java
+ *
+ * Description: External-memory A* with delayed duplicate detection, for
+ *              boards whose search doesn't fit in memory. Generated states
+ *              go into buckets by moves g and estimate h. Each bucket is
+ *              kept in memory until the buffers of all buckets together
+ *              reach a cap; then every buffer is sorted and written to disk
+ *              as a run. Buckets are expanded in order of f = g + h, then g.
+ *              Before a bucket is expanded its runs are merged into one
+ *              sorted file, dropping duplicates within the bucket and
+ *              states already in any bucket expanded before it with as many
+ *              moves or fewer. Only buckets whose g has the same parity are
+ *              read, since moves alternate the empty block between two
+ *              colors of a checkerboard, and they are read MAX_RUNS at a
+ *              time. So no state is expanded twice in the same number of
+ *              moves or more; one is expanded again only if it's reached
+ *              later in fewer moves, which an inconsistent heuristic allows.
+ *              Buckets with many runs are merged early so no merge reads
+ *              from too many files at once. All disk access is
+ *              sequential except for rebuilding the solution, which looks
+ *              up each parent in its sorted bucket file by binary search.
+ *              The heuristic need only be admissible (PatternDatabase isn't
+ *              consistent): a state goes into the bucket for the larger of
+ *              its estimate and its parent's bucket h minus 1 (pathmax), so
+ *              f never drops from a state to its children and no bucket is
+ *              added to after it's expanded. Each record keeps the state's
+ *              own estimate, for update(), and its parent's bucket h, for
+ *              rebuilding the solution.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+class ExternalAStarSearch implements Search {
+
+    /* Runs a bucket may have before they are merged into one. */
+    private static final int MAX_RUNS = 16;
+    /* Bytes of buffer per open file. */
+    private static final int IO_BUFFER = 1 << 16;
+    /* Move recorded for the start state. */
+    private static final int NONE = 4;
+
+    private int N;
+    private int W;           // longs per packed state
+    /* Longs per record: the state, then blank | move << 32, then
+     * estimate | parent's bucket h << 32. */
+    private int R;
+    private Heuristic heuristic;
+    private SearchBudget budget;
+    private long[] goalState;
+    private Path dir;
+    private int files;
+    /* Records all buffers may hold before they are written out. */
+    private long capacity;
+    private long buffered;
+    /* Records added to buckets not expanded yet. */
+    private long waiting;
+    private SolverStats stats;
+    /* Buckets by f << 32 | g. */
+    private TreeMap<Long, Bucket> buckets = new TreeMap<Long, Bucket>();
+    /* Key of the last bucket expanded. */
+    private long current = -1;
+    /* Goal record and its moves, once found. */
+    private long[] goal;
+    private int goalMoves;
+
+    /* States reached in g moves with estimate h, after pathmax. */
+    private class Bucket {
+        private int g;
+        private int h;
+        private long[] buffer = new long[0];
+        private int size;                     // records in buffer
+        private long added;                   // records ever added
+        private List<Path> runs = new ArrayList<Path>();
+        private Path file;                    // sorted, once expanded
+
+        private Bucket(int g, int h) {
+            this.g = g;
+            this.h = h;
+        }
+
+        private boolean isPending() {
+            return size > 0 || !runs.isEmpty();
+        }
+
+        /* Adds a record to the buffer. */
+        private void add(long[] record) {
+            if (file != null)
+                throw new IllegalStateException("Bucket already expanded");
+            if ((size + 1) * R > buffer.length)
+                buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, 64 * R));
+            System.arraycopy(record, 0, buffer, size * R, R);
+            size++;
+            added++;
+            waiting++;
+        }
+
+        /* Sorts the buffer and writes it out as a run, merging the runs into
+         * one if there are too many. */
+        private void spill() throws IOException {
+            if (size == 0)
+                return;
+            sort(buffer, 0, size);
+            Path run = newFile();
+            try (DataOutputStream out = writer(run)) {
+                for (int i = 0; i < size; i++) {
+                    if (i == 0 || compare(buffer, i * R, buffer, (i - 1) * R) != 0)
+                        write(out, buffer, i * R);
+                    else
+                        stats.duplicates++;
+                }
+            }
+            runs.add(run);
+            buffered -= size;
+            size = 0;
+            buffer = new long[0];
+            if (runs.size() >= MAX_RUNS) {
+                Path merged = newFile();
+                merge(runs, new ArrayList<Path>(), merged);
+                for (Path p : runs)
+                    Files.delete(p);
+                runs.clear();
+                runs.add(merged);
+            }
+        }
+    }
+
+    /* Starts a search from the given board, spilling to files in the given
+     * directory once the buffered states take more than the given bytes. */
+    public ExternalAStarSearch(Board start, Heuristic heuristic,
+                               SearchBudget budget, String directory,
+                               long bufferBytes) {
+        this.heuristic = heuristic;
+        this.budget = budget;
+        stats = budget.stats();
+        N = start.dimension();
+        W = Board.words(N);
+        R = W + 2;
+        goalState = Board.goal(N);
+        capacity = Math.max(1, bufferBytes / (8L * R));
+        try {
+            dir = Files.createTempDirectory(Paths.get(directory), "astar");
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long[] record = Arrays.copyOf(start.packed(), R);
+        record[W] = start.blankIndex() | (long) NONE << 32;
+        int h = heuristic.estimate(record, N);
+        record[W + 1] = h;
+        bucket(0, h).add(record);
+        buffered++;
+        stats.generated++;
+        stats.heuristicEvals++;
+    }
+
+    /* Expands the next bucket: the pending one with the smallest f and, of
+     * those, g. Done once that bucket holds the goal. */
+    public boolean step() {
+        try {
+            Map.Entry<Long, Bucket> next = buckets.higherEntry(current);
+            while (next != null && !next.getValue().isPending())
+                next = buckets.higherEntry(next.getKey());
+            if (next == null)
+                throw new IllegalStateException("No solution from a solvable board");
+            current = next.getKey();
+            Bucket b = next.getValue();
+            b.spill();
+            List<Path> older = new ArrayList<Path>();
+            for (Bucket o : buckets.values())
+                if (o.file != null && o.g <= b.g && (b.g - o.g) % 2 == 0)
+                    older.add(o.file);
+            int i = 0;
+            do {
+                int end = Math.min(i + MAX_RUNS, older.size());
+                b.file = newFile();
+                merge(b.runs, older.subList(i, end), b.file);
+                for (Path run : b.runs)
+                    Files.delete(run);
+                b.runs.clear();
+                b.runs.add(b.file);
+                i = end;
+            } while (i < older.size());
+            b.runs.clear();
+            waiting -= b.added;
+            if (b.h == 0 && findGoal(b))
+                return true;
+            expand(b);
+            return false;
+        }
+        catch (IOException e) {
+            deleteFiles();
+            throw new UncheckedIOException(e);
+        }
+        catch (RuntimeException e) {
+            deleteFiles();
+            throw e;
+        }
+    }
+
+    /* Returns the moves to the goal. Each state's parent is found by undoing
+     * its move and looking the result up in the file of the bucket its
+     * record names. Deletes the files afterwards. */
+    public byte[] path() {
+        try {
+            byte[] path = new byte[goalMoves];
+            long[] record = goal.clone();
+            for (int g = goalMoves; g > 0; g--) {
+                int blank = (int) record[W];
+                int move = (int) (record[W] >>> 32);
+                int h = (int) (record[W + 1] >>> 32);
+                path[g - 1] = (byte) move;
+                int from = Board.target(N, blank, move ^ 1);
+                Board.slide(record, record, N, blank, from);
+                Bucket b = buckets.get(key(g - 1, h));
+                if (b == null || !find(b.file, record))
+                    throw new IllegalStateException("Parent state missing");
+            }
+            return path;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            deleteFiles();
+        }
+    }
+
+    public int lowerBound() {
+        return goalMoves;
+    }
+
+    /* Reads the bucket looking for the goal state. */
+    private boolean findGoal(Bucket b) throws IOException {
+        long[] record = new long[R];
+        try (DataInputStream in = reader(b.file)) {
+            while (read(in, record)) {
+                if (compare(record, 0, goalState, 0) == 0) {
+                    goal = record;
+                    goalMoves = b.g;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /* Reads the bucket's file and adds every neighbor of every state to its
+     * bucket, except the state it came from. A neighbor's bucket h is at
+     * least b.h - 1 (pathmax). */
+    private void expand(Bucket b) throws IOException {
+        long[] record = new long[R];
+        long[] next = new long[R];
+        try (DataInputStream in = reader(b.file)) {
+            while (read(in, record)) {
+                if (++stats.expanded % 1024 == 0)
+                    budget.check(buffered * 8 * R);
+                int blank = (int) record[W];
+                int last = (int) (record[W] >>> 32);
+                int estimate = (int) record[W + 1];
+                for (int d = Board.UP; d <= Board.RIGHT; d++) {
+                    int to = Board.target(N, blank, d);
+                    if (to < 0 || d == (last ^ 1))
+                        continue;
+                    int tile = Board.tileAt(record, N, to);
+                    Board.slide(record, next, N, blank, to);
+                    next[W] = to | (long) d << 32;
+                    int h = heuristic.update(next, N, estimate, tile, to, blank);
+                    next[W + 1] = h | (long) b.h << 32;
+                    stats.generated++;
+                    stats.heuristicEvals++;
+                    bucket(b.g + 1, Math.max(h, b.h - 1)).add(next);
+                    if (++buffered > capacity)
+                        spillAll();
+                }
+            }
+        }
+        stats.frontier(waiting);
+    }
+
+    /* Writes every bucket's buffer out as a run. */
+    private void spillAll() throws IOException {
+        for (Bucket b : buckets.values())
+            b.spill();
+    }
+
+    /* Returns the bucket for g and h, creating it if needed. */
+    private Bucket bucket(int g, int h) {
+        long k = key(g, h);
+        Bucket b = buckets.get(k);
+        if (b == null) {
+            b = new Bucket(g, h);
+            buckets.put(k, b);
+        }
+        return b;
+    }
+
+    private static long key(int g, int h) {
+        return (long) (g + h) << 32 | g;
+    }
+
+    /* Merges sorted runs into one sorted file without duplicates, leaving
+     * out the states in the sorted files minus. */
+    private void merge(List<Path> runs, List<Path> minus, Path out)
+        throws IOException {
+        // MinPQ is from algs4 library
+        MinPQ<Run> pq = new MinPQ<Run>();
+        MinPQ<Run> skip = new MinPQ<Run>();
+        long[] last = null;
+        try (DataOutputStream dst = writer(out)) {
+            open(runs, pq);
+            open(minus, skip);
+            while (!pq.isEmpty()) {
+                Run r = pq.delMin();
+                long[] rec = r.record;
+                boolean keep = last == null || compare(rec, 0, last, 0) != 0;
+                while (keep && !skip.isEmpty()
+                       && compare(skip.min().record, 0, rec, 0) < 0) {
+                    Run s = skip.delMin();
+                    if (s.next())
+                        skip.insert(s);
+                    else
+                        s.close();
+                }
+                if (keep && !skip.isEmpty()
+                    && compare(skip.min().record, 0, rec, 0) == 0)
+                    keep = false;
+                if (keep) {
+                    write(dst, rec, 0);
+                    last = rec.clone();
+                }
+                else
+                    stats.duplicates++;
+                if (r.next())
+                    pq.insert(r);
+                else
+                    r.close();
+            }
+        }
+        finally {
+            while (!pq.isEmpty())
+                pq.delMin().close();
+            while (!skip.isEmpty())
+                skip.delMin().close();
+        }
+    }
+
+    /* Opens the sorted files and puts those that aren't empty on pq. */
+    private void open(List<Path> files, MinPQ<Run> pq) throws IOException {
+        for (Path p : files) {
+            Run r = new Run(p);
+            if (r.next())
+                pq.insert(r);
+            else
+                r.close();
+        }
+    }
+
+    /* A sorted file being read one record at a time. */
+    private class Run implements Comparable<Run> {
+        private DataInputStream in;
+        private long[] record = new long[R];
+
+        private Run(Path p) throws IOException {
+            in = reader(p);
+        }
+
+        /* Reads the next record. Returns false at the end of the file. */
+        private boolean next() throws IOException {
+            return read(in, record);
+        }
+
+        private void close() throws IOException {
+            in.close();
+        }
+
+        public int compareTo(Run other) {
+            return compare(record, 0, other.record, 0);
+        }
+    }
+
+    /* Looks up the state at the start of record in a sorted file. If it's
+     * there, copies the rest of its record into record and returns true. */
+    private boolean find(Path p, long[] record) throws IOException {
+        long[] probe = new long[R];
+        byte[] bytes = new byte[8 * R];
+        try (RandomAccessFile f = new RandomAccessFile(p.toFile(), "r")) {
+            long lo = 0;
+            long hi = f.length() / bytes.length - 1;
+            while (lo <= hi) {
+                long mid = (lo + hi) >>> 1;
+                f.seek(mid * bytes.length);
+                f.readFully(bytes);
+                for (int k = 0; k < R; k++)
+                    for (int b = 0; b < 8; b++)
+                        probe[k] = probe[k] << 8 | (bytes[8 * k + b] & 0xFF);
+                int c = compare(probe, 0, record, 0);
+                if (c == 0) {
+                    System.arraycopy(probe, W, record, W, R - W);
+                    return true;
+                }
+                if (c < 0) lo = mid + 1;
+                else       hi = mid - 1;
+            }
+        }
+        return false;
+    }
+
+    /* Compares the states at a[i] and b[j]. */
+    private int compare(long[] a, int i, long[] b, int j) {
+        for (int k = 0; k < W; k++) {
+            if (a[i + k] != b[j + k])
+                return Long.compare(a[i + k], b[j + k]);
+        }
+        return 0;
+    }
+
+    /* Sorts records lo to hi - 1 of a by state (quicksort, insertion sort
+     * for short ranges). */
+    private void sort(long[] a, int lo, int hi) {
+        long[] pivot = new long[R];
+        long[] tmp = new long[R];
+        while (hi - lo > 16) {
+            System.arraycopy(a, (lo + (hi - lo) / 2) * R, pivot, 0, R);
+            int i = lo;
+            int j = hi - 1;
+            while (i <= j) {
+                while (compare(a, i * R, pivot, 0) < 0) i++;
+                while (compare(a, j * R, pivot, 0) > 0) j--;
+                if (i <= j)
+                    swap(a, i++, j--, tmp);
+            }
+            if (j - lo < hi - i) {
+                sort(a, lo, j + 1);
+                lo = i;
+            }
+            else {
+                sort(a, i, hi);
+                hi = j + 1;
+            }
+        }
+        for (int i = lo + 1; i < hi; i++)
+            for (int j = i; j > lo && compare(a, j * R, a, (j - 1) * R) < 0; j--)
+                swap(a, j, j - 1, tmp);
+    }
+
+    private void swap(long[] a, int i, int j, long[] tmp) {
+        System.arraycopy(a, i * R, tmp, 0, R);
+        System.arraycopy(a, j * R, a, i * R, R);
+        System.arraycopy(tmp, 0, a, j * R, R);
+    }
+
+    private Path newFile() {
+        return dir.resolve("run" + (files++));
+    }
+
+    private DataOutputStream writer(Path p) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(
+            Files.newOutputStream(p), IO_BUFFER));
+    }
+
+    private DataInputStream reader(Path p) throws IOException {
+        return new DataInputStream(new BufferedInputStream(
+            Files.newInputStream(p), IO_BUFFER));
+    }
+
+    private void write(DataOutputStream out, long[] a, int off)
+        throws IOException {
+        for (int k = 0; k < R; k++)
+            out.writeLong(a[off + k]);
+    }
+
+    /* Reads a record. Returns false at the end of the file. */
+    private boolean read(DataInputStream in, long[] record) throws IOException {
+        try {
+            record[0] = in.readLong();
+        }
+        catch (EOFException e) {
+            return false;
+        }
+        for (int k = 1; k < R; k++)
+            record[k] = in.readLong();
+        return true;
+    }
+
+    /* Deletes the directory of runs and bucket files. */
+    private void deleteFiles() {
+        if (dir == null)
+            return;
+        for (int i = 0; i < files; i++) {
+            try {
+                Files.deleteIfExists(dir.resolve("run" + i));
+            }
+            catch (IOException e) {
+                // left for the operating system to clean up
+            }
+        }
+        try {
+            Files.deleteIfExists(dir);
+        }
+        catch (IOException e) {
+            // not empty or already gone
+        }
+        dir = null;
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * Compilation:  javac-algs4 Heuristic.java
+ * Execution:
+ * Dependencies: Board.java
+ *
+ * Description: An admissible estimate of the number of moves left to solve a
+ *              packed board state (see Board.java). Solver evaluates the
+ *              initial board once with estimate() and then derives the
+ *              estimate of every neighbor from its parent's with update(),
+ *              which only looks at the tile that moved.
+ *              Implementations are in Heuristics.java.
+ */
+
+public interface Heuristic {
+
+    /* Returns the estimate for a packed N x N state. */
+    int estimate(long[] state, int N);
+
+    /* Returns the estimate for a packed state (after the move) given the
+     * estimate h of the state before tile moved from index from to index
+     * to. */
+    int update(long[] state, int N, int h, int tile, int from, int to);
+}
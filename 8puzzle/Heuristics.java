@@ -0,0 +1,316 @@
+/*
+ * Compilation:  javac-algs4 Heuristics.java
+ * Execution:
+ * Dependencies: Board.java, Heuristic.java
+ *
+ * Description: The heuristics Solver can search with, from weakest to
+ *              strongest:
+ *              HAMMING           number of tiles out of place.
+ *              MANHATTAN         sum of the row + column distances of every
+ *                                tile to its final position.
+ *              LINEAR_CONFLICT   manhattan plus 2 moves for every tile that
+ *                                has to leave its final row or column to let
+ *                                another tile of that line past it.
+ *              WALKING_DISTANCE  moves needed if tiles only had to reach their
+ *                                final rows (and, separately, columns),
+ *                                looked up in a table built by breadth-first
+ *                                search. Only for N <= 4.
+ *              manhattanTo(target) is manhattan distance to another board
+ *              than the goal, for searching backward from the goal.
+ *              All of them update in time independent of the number of tiles
+ *              on the board, except that linear conflict rescans the two
+ *              lines the moved tile left and joined and walking distance
+ *              recounts one row/column summary.
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class Heuristics {
+
+    public static final Heuristic HAMMING = new Hamming();
+    public static final Heuristic MANHATTAN = new Manhattan();
+    public static final Heuristic LINEAR_CONFLICT = new LinearConflict();
+    public static final Heuristic WALKING_DISTANCE = new WalkingDistance();
+
+    private Heuristics() { }
+
+    /* Returns the manhattan distance to the given board instead of to the
+     * goal board. Only for boards of the same dimension. */
+    public static Heuristic manhattanTo(Board target) {
+        return new ManhattanTo(target);
+    }
+
+    /* 1 for every tile that isn't at its final position. */
+    private static class Hamming implements Heuristic {
+        public int estimate(long[] state, int N) {
+            int total = 0;
+            for (int i = 0; i < N * N; i++) {
+                int tile = Board.tileAt(state, N, i);
+                if (tile != 0 && tile != i + 1)
+                    total++;
+            }
+            return total;
+        }
+
+        public int update(long[] state, int N, int h, int tile, int from,
+                          int to) {
+            if (from == tile - 1) return h + 1;
+            if (to == tile - 1) return h - 1;
+            return h;
+        }
+    }
+
+    /* Row + column distance of every tile to its final position. */
+    private static class Manhattan implements Heuristic {
+        public int estimate(long[] state, int N) {
+            return Board.manhattan(state, N);
+        }
+
+        public int update(long[] state, int N, int h, int tile, int from,
+                          int to) {
+            return h - distance(N, tile, from) + distance(N, tile, to);
+        }
+
+        private static int distance(int N, int tile, int i) {
+            return Math.abs((tile - 1) / N - i / N)
+                 + Math.abs((tile - 1) % N - i % N);
+        }
+    }
+
+    /* Row + column distance of every tile to its position on a target
+     * board, looked up in a table of target positions by tile. */
+    private static class ManhattanTo implements Heuristic {
+        private int[] cell;  // cell[tile] = index of tile on the target
+
+        public ManhattanTo(Board target) {
+            int N = target.dimension();
+            long[] state = target.packed();
+            cell = new int[N * N];
+            for (int i = 0; i < N * N; i++)
+                cell[Board.tileAt(state, N, i)] = i;
+        }
+
+        public int estimate(long[] state, int N) {
+            if (N * N != cell.length)
+                throw new IllegalArgumentException("Board dimensions differ");
+            int total = 0;
+            for (int i = 0; i < N * N; i++) {
+                int tile = Board.tileAt(state, N, i);
+                if (tile != 0)
+                    total += distance(N, cell[tile], i);
+            }
+            return total;
+        }
+
+        public int update(long[] state, int N, int h, int tile, int from,
+                          int to) {
+            return h - distance(N, cell[tile], from)
+                     + distance(N, cell[tile], to);
+        }
+
+        private static int distance(int N, int i, int j) {
+            return Math.abs(i / N - j / N) + Math.abs(i % N - j % N);
+        }
+    }
+
+    /* Manhattan distance plus linear conflicts. In a single row (column),
+     * the tiles whose final position is in that row (column) and that are
+     * not part of the longest run already in the right relative order must
+     * each leave the line and come back, which costs 2 moves more than
+     * their manhattan distance. */
+    private static class LinearConflict implements Heuristic {
+        public int estimate(long[] state, int N) {
+            int total = MANHATTAN.estimate(state, N);
+            for (int line = 0; line < N; line++) {
+                total += 2 * conflicts(state, N, line, true, -1, -1);
+                total += 2 * conflicts(state, N, line, false, -1, -1);
+            }
+            return total;
+        }
+
+        /* A vertical move changes the two rows the tile left and joined
+         * and no column (the order of the tiles in a column doesn't
+         * change); a horizontal move is the same with rows and columns
+         * swapped. The state before the move is read by swapping from and
+         * to. */
+        public int update(long[] state, int N, int h, int tile, int from,
+                          int to) {
+            h = MANHATTAN.update(state, N, h, tile, from, to);
+            boolean rows = from / N != to / N;
+            int a = rows ? from / N : from % N;
+            int b = rows ? to / N : to % N;
+            h -= 2 * (conflicts(state, N, a, rows, from, to)
+                      + conflicts(state, N, b, rows, from, to));
+            h += 2 * (conflicts(state, N, a, rows, -1, -1)
+                      + conflicts(state, N, b, rows, -1, -1));
+            return h;
+        }
+
+        /* Returns the number of tiles that must leave the given row (or
+         * column) to let the others reach their final positions, reading
+         * the state as if the tiles at indices x and y were swapped.
+         * That is the number of tiles that belong in the line minus the
+         * longest increasing subsequence of their final positions, found by
+         * patience sorting with the pile tops kept as a bitmask (final
+         * positions are distinct and less than N): one long for N <= 64,
+         * an array of them beyond. */
+        private static int conflicts(long[] state, int N, int line,
+                                     boolean row, int x, int y) {
+            if (N > 64)
+                return wideConflicts(state, N, line, row, x, y);
+            int count = 0;
+            long tops = 0;
+            for (int k = 0; k < N; k++) {
+                int i = row ? line * N + k : k * N + line;
+                int tile = Board.tileAt(state, N, i == x ? y : i == y ? x : i);
+                if (tile == 0)
+                    continue;
+                int goalLine = row ? (tile - 1) / N : (tile - 1) % N;
+                if (goalLine != line)
+                    continue;
+                int goal = row ? (tile - 1) % N : (tile - 1) / N;
+                long higher = tops & (-2L << goal);
+                tops = (tops & ~Long.lowestOneBit(higher)) | (1L << goal);
+                count++;
+            }
+            return count - Long.bitCount(tops);
+        }
+
+        /* conflicts() for N > 64. The lowest pile top above a final
+         * position may be in a later word. */
+        private static int wideConflicts(long[] state, int N, int line,
+                                         boolean row, int x, int y) {
+            int count = 0;
+            long[] tops = new long[(N + 63) >>> 6];
+            for (int k = 0; k < N; k++) {
+                int i = row ? line * N + k : k * N + line;
+                int tile = Board.tileAt(state, N, i == x ? y : i == y ? x : i);
+                if (tile == 0)
+                    continue;
+                int goalLine = row ? (tile - 1) / N : (tile - 1) % N;
+                if (goalLine != line)
+                    continue;
+                int goal = row ? (tile - 1) % N : (tile - 1) / N;
+                int w = goal >>> 6;
+                long higher = tops[w] & (-2L << (goal & 63));
+                while (higher == 0 && ++w < tops.length)
+                    higher = tops[w];
+                if (higher != 0)
+                    tops[w] &= ~Long.lowestOneBit(higher);
+                tops[goal >>> 6] |= 1L << (goal & 63);
+                count++;
+            }
+            for (long t : tops)
+                count -= Long.bitCount(t);
+            return count;
+        }
+    }
+
+    /* Walking distance. Summarize a board by an N x N matrix whose entry
+     * (i, j) counts the tiles in row i whose final row is j. A move changes
+     * the summary only by moving one tile to the row of the empty block, so
+     * the fewest such moves to reach the goal summary is a lower bound on the
+     * vertical moves left. The same table applied to columns bounds the
+     * horizontal moves, and the two add up.
+     * A summary is coded in a long with 3 bits per entry, which is why N is
+     * limited to 4. */
+    private static class WalkingDistance implements Heuristic {
+        /* Sorted summary codes and their distances, by N. */
+        private static long[][] codes = new long[5][];
+        private static byte[][] distances = new byte[5][];
+
+        public int estimate(long[] state, int N) {
+            table(N);
+            return distance(N, summary(state, N, true))
+                 + distance(N, summary(state, N, false));
+        }
+
+        /* Only the row summary changes on a vertical move and only the
+         * column summary on a horizontal one. The summary before the move
+         * differs from the one after it by one tile in one entry. */
+        public int update(long[] state, int N, int h, int tile, int from,
+                          int to) {
+            boolean rows = from / N != to / N;
+            int goal = rows ? (tile - 1) / N : (tile - 1) % N;
+            int a = rows ? from / N : from % N;
+            int b = rows ? to / N : to % N;
+            long after = summary(state, N, rows);
+            long before = after - (1L << 3 * (b * N + goal))
+                                + (1L << 3 * (a * N + goal));
+            return h - distance(N, before) + distance(N, after);
+        }
+
+        /* Returns the row (or column) summary of a packed state. */
+        private static long summary(long[] state, int N, boolean rows) {
+            long code = 0;
+            for (int i = 0; i < N * N; i++) {
+                int tile = Board.tileAt(state, N, i);
+                if (tile == 0)
+                    continue;
+                if (rows)
+                    code += 1L << 3 * (i / N * N + (tile - 1) / N);
+                else
+                    code += 1L << 3 * (i % N * N + (tile - 1) % N);
+            }
+            return code;
+        }
+
+        private static int distance(int N, long code) {
+            return distances[N][Arrays.binarySearch(codes[N], code)];
+        }
+
+        /* Builds the table for N by breadth-first search from the goal
+         * summary, unless it was already built. */
+        private static synchronized void table(int N) {
+            if (N > 4)
+                throw new IllegalArgumentException("Walking distance needs N <= 4");
+            if (codes[N] != null)
+                return;
+            long goal = 0;
+            for (int i = 0; i < N; i++)
+                goal += (long) (i < N - 1 ? N : N - 1) << 3 * (i * N + i);
+            HashMap<Long, Integer> seen = new HashMap<Long, Integer>();
+            Queue<Long> q = new Queue<Long>();
+            seen.put(goal, 0);
+            q.enqueue(goal);
+            while (!q.isEmpty()) {
+                long code = q.dequeue();
+                int d = seen.get(code);
+                // The empty block is in the row holding N - 1 tiles.
+                int blank = 0;
+                for (int i = 0; i < N; i++) {
+                    int sum = 0;
+                    for (int j = 0; j < N; j++)
+                        sum += (int) (code >>> 3 * (i * N + j)) & 7;
+                    if (sum == N - 1)
+                        blank = i;
+                }
+                for (int row = blank - 1; row <= blank + 1; row += 2) {
+                    if (row < 0 || row >= N)
+                        continue;
+                    for (int j = 0; j < N; j++) {
+                        if (((code >>> 3 * (row * N + j)) & 7) == 0)
+                            continue;
+                        long next = code - (1L << 3 * (row * N + j))
+                                         + (1L << 3 * (blank * N + j));
+                        if (!seen.containsKey(next)) {
+                            seen.put(next, d + 1);
+                            q.enqueue(next);
+                        }
+                    }
+                }
+            }
+            long[] sorted = new long[seen.size()];
+            int k = 0;
+            for (long code : seen.keySet())
+                sorted[k++] = code;
+            Arrays.sort(sorted);
+            byte[] dist = new byte[sorted.length];
+            for (int i = 0; i < sorted.length; i++)
+                dist[i] = (byte) (int) seen.get(sorted[i]);
+            distances[N] = dist;
+            codes[N] = sorted;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Compilation:  javac-algs4 IDAStarSearch.java
+ * Execution:
+ * Dependencies: Board.java, Heuristic.java, Search.java, SearchBudget.java
+ *
+ * Description: Iterative-deepening A* from a start board. Each iteration is
+ *              a depth-first search that cuts off every path whose moves +
+ *              estimate exceed a bound; the next bound is the smallest value
+ *              that was cut off. Since the heuristic is admissible, the first
+ *              solution found is a shortest one.
+ *              The search works on a single packed state that is changed in
+ *              place and undone on the way back, so memory is proportional
+ *              to the solution length and nothing is allocated per node.
+ */
+
+import java.util.Arrays;
+
+class IDAStarSearch implements Search {
+
+    private static final int FOUND = -1;
+
+    private int N;
+    private Heuristic heuristic;
+    private SearchBudget budget;
+    private SolverStats stats;
+    private long[] goalState;
+    /* The board being searched and the index of its empty block. */
+    private long[] state;
+    private int blank;
+    /* Estimate for the start board and the current bound. */
+    private int h0;
+    private int bound;
+    /* Moves of the empty block along the current path, and the length of
+     * the solution once found. */
+    private byte[] path;
+    private int length;
+
+    /* Starts a search from the given board. */
+    public IDAStarSearch(Board start, Heuristic heuristic, SearchBudget budget) {
+        this.heuristic = heuristic;
+        this.budget = budget;
+        stats = budget.stats();
+        N = start.dimension();
+        goalState = Board.goal(N);
+        state = start.packed();
+        blank = start.blankIndex();
+        h0 = heuristic.estimate(state, N);
+        stats.heuristicEvals++;
+        bound = h0;
+        path = new byte[Math.max(bound, 16)];
+    }
+
+    /* Runs one depth-first iteration with the current bound. If it doesn't
+     * find the goal, raises the bound for the next one, checking the budget
+     * (and sending progress) between iterations too, since the first ones
+     * are far shorter than the interval between checks inside search(). */
+    public boolean step() {
+        int t = search(0, h0, -1);
+        if (t == FOUND)
+            return true;
+        bound = t;
+        budget.check(path.length);
+        return false;
+    }
+
+    public byte[] path() {
+        return Arrays.copyOf(path, length);
+    }
+
+    /* Searches below the current state, which was reached in g moves, the
+     * last of them in direction last, and has estimate h. Returns FOUND if
+     * the goal was found (the state is then left at the goal), otherwise the
+     * smallest moves + estimate that exceeded the bound. Moves that undo the
+     * last move are never tried. */
+    private int search(int g, int h, int last) {
+        int f = g + h;
+        stats.generated++;
+        if (f > bound)
+            return f;
+        if (++stats.expanded % 65536 == 0)
+            budget.check(path.length);
+        if (h == 0 && blank == N * N - 1 && Arrays.equals(state, goalState)) {
+            length = g;
+            return FOUND;
+        }
+        if (g == path.length)
+            path = Arrays.copyOf(path, 2 * g);
+        stats.frontier(g + 1);
+        int min = Integer.MAX_VALUE;
+        for (int dir = Board.UP; dir <= Board.RIGHT; dir++) {
+            if (dir == (last ^ 1))
+                continue;
+            int to = Board.target(N, blank, dir);
+            if (to < 0)
+                continue;
+            int from = blank;
+            int tile = Board.tileAt(state, N, to);
+            Board.slide(state, state, N, from, to);
+            blank = to;
+            path[g] = (byte) dir;
+            stats.heuristicEvals++;
+            int t = search(g + 1, heuristic.update(state, N, h, tile, to, from),
+                           dir);
+            if (t == FOUND)
+                return FOUND;
+            Board.slide(state, state, N, to, from);
+            blank = from;
+            if (t < min)
+                min = t;
+        }
+        return min;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Compilation:  javac-algs4 NodePool.java
+ * Execution:
+ * Dependencies:
+ *
+ * Description: Search nodes kept in parallel primitive arrays instead of one
+ *              object per node. A node is an index into the pool. It has a
+ *              packed board state (see Board.tileAt()), the index of its
+ *              empty block, its moves from the start and heuristic estimate,
+ *              and a link: the index of its parent node and the direction
+ *              the empty block moved in to get here, in two bits. A path is
+ *              recovered by following links back to the start, so a node
+ *              costs a few ints on top of its state however deep it is.
+ */
+
+import java.util.Arrays;
+
+class NodePool {
+
+    /* Link of a start node, which has no parent. */
+    private static final int ROOT = -1 << 2;
+
+    private int words;     // longs per state
+    private int size;      // number of nodes
+    private long[] states; // states back to back, words longs each
+    private int[] links;   // parent << 2 | direction
+    private int[] costs;   // moves << 16 | estimate
+    private int[] blanks;  // index of the empty block
+
+    /* Constructs an empty pool for states with the given number of words. */
+    public NodePool(int words) {
+        this.words = words;
+        int capacity = 1024;
+        states = new long[capacity * words];
+        links = new int[capacity];
+        costs = new int[capacity];
+        blanks = new int[capacity];
+    }
+
+    /* Returns the number of nodes in the pool. */
+    public int size() {
+        return size;
+    }
+
+    /* Adds a start node for the given state and returns its index. */
+    public int add(long[] state, int blank, int h) {
+        return append(state, blank, 0, h, ROOT);
+    }
+
+    /* Adds a node for the given state, reached from node parent by moving
+     * the empty block in direction dir, and returns its index. */
+    public int add(long[] state, int blank, int h, int parent, int dir) {
+        return append(state, blank, moves(parent) + 1, h, parent << 2 | dir);
+    }
+
+    private int append(long[] state, int blank, int moves, int h, int link) {
+        if (moves > 0xFFFF || h < 0 || h > 0xFFFF)
+            throw new IllegalArgumentException("Cost out of range");
+        if (size == links.length)
+            resize();
+        System.arraycopy(state, 0, states, size * words, words);
+        blanks[size] = blank;
+        costs[size] = moves << 16 | h;
+        links[size] = link;
+        return size++;
+    }
+
+    /* Returns the array holding the states. Node i's state starts at
+     * offset(i). The array is replaced as the pool grows, so it must be
+     * fetched again after add(). */
+    public long[] states() {
+        return states;
+    }
+
+    /* Returns where node i's state starts in states(). */
+    public int offset(int i) {
+        return i * words;
+    }
+
+    /* Copies node i's state into dst. */
+    public void state(int i, long[] dst) {
+        System.arraycopy(states, i * words, dst, 0, words);
+    }
+
+    public int blank(int i) {
+        return blanks[i];
+    }
+
+    public int moves(int i) {
+        return costs[i] >>> 16;
+    }
+
+    public int estimate(int i) {
+        return costs[i] & 0xFFFF;
+    }
+
+    /* Returns moves + estimate of node i. */
+    public int priority(int i) {
+        return moves(i) + estimate(i);
+    }
+
+    /* Returns the parent of node i, or -1 for a start node. */
+    public int parent(int i) {
+        return links[i] >> 2;
+    }
+
+    /* Returns the direction the empty block moved in to reach node i from
+     * its parent. */
+    public int direction(int i) {
+        return links[i] & 3;
+    }
+
+    /* Returns the moves from the start node to node i. */
+    public byte[] path(int i) {
+        byte[] path = new byte[moves(i)];
+        for (int k = path.length - 1; k >= 0; k--) {
+            path[k] = (byte) direction(i);
+            i = parent(i);
+        }
+        return path;
+    }
+
+    /* Doubles the capacity. */
+    private void resize() {
+        int capacity = 2 * links.length;
+        states = Arrays.copyOf(states, capacity * words);
+        links = Arrays.copyOf(links, capacity);
+        costs = Arrays.copyOf(costs, capacity);
+        blanks = Arrays.copyOf(blanks, capacity);
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * Compilation:  javac-algs4 ParallelAStarSearch.java
+ * Execution:
+ * Dependencies: Board.java, StateTable.java, Heuristic.java, Search.java,
+ *               SearchBudget.java
+ *
+ * Description: Hash-distributed A* (HDA*) on several threads. Every board
+ *              state has an owner thread, picked by a hash of the state; only
+ *              the owner keeps the state in its node pool, closed set and
+ *              open list, so workers share no data structures. A worker that
+ *              generates a state it doesn't own appends it to a batch for
+ *              the owner and hands full batches over through the owner's
+ *              lock-free inbox.
+ *
+ *              The search proceeds in layers of f = moves + estimate: each
+ *              step() expands every state with f <= the current bound on all
+ *              threads, then raises the bound to the smallest deferred f.
+ *              Since all states with a smaller f were exhausted in earlier
+ *              layers, the first goal reached is a shortest solution. A state
+ *              reached again with fewer moves is reopened.
+ *
+ *              A layer ends when no worker has work and no batch is in
+ *              flight. pending counts busy workers plus batches sent but not
+ *              yet received: it goes up before a batch is enqueued and when
+ *              an idle worker picks one up, and down when a worker runs out of
+ *              work and when a batch has been received. Once it reaches zero
+ *              nothing can raise it again, so workers can stop.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+class ParallelAStarSearch implements Search {
+
+    /* Nodes per batch sent to another worker. */
+    private static final int BATCH = 64;
+    /* Expansions between flushes of partly filled batches. */
+    private static final int FLUSH = 256;
+    /* Move recorded for a start node. */
+    private static final int NONE = 4;
+    /* Rough bytes per node: pool entries, table slots and stack entries. */
+    private static final int NODE_BYTES = 64;
+
+    private int N;
+    private int W;           // longs per packed state
+    private int R;           // longs per node in a batch: state, meta, parent
+    private Heuristic heuristic;
+    private SearchBudget budget;
+    private SolverStats stats;
+    /* Nodes in all pools, updated by each worker every FLUSH expansions. */
+    private AtomicLong nodes = new AtomicLong();
+    /* First exception thrown on a worker thread. */
+    private volatile RuntimeException failure;
+    private long[] goalState;
+    private Worker[] workers;
+    /* Bound on f for the current layer, MAX_VALUE once nothing is left. */
+    private int bound;
+    private AtomicLong pending = new AtomicLong();
+    private volatile boolean done;
+    /* Reference (worker, node) to the goal node once found, -1 before. */
+    private AtomicLong goal = new AtomicLong(-1);
+
+    /* Starts a search from the given board on the given number of
+     * threads. */
+    public ParallelAStarSearch(Board start, Heuristic heuristic,
+                               SearchBudget budget, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Need at least one thread");
+        this.heuristic = heuristic;
+        this.budget = budget;
+        stats = budget.stats();
+        N = start.dimension();
+        W = Board.words(N);
+        R = W + 2;
+        goalState = Board.goal(N);
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++)
+            workers[i] = new Worker(i);
+        long[] state = start.packed();
+        int h = heuristic.estimate(state, N);
+        stats.generated++;
+        stats.heuristicEvals++;
+        bound = h;
+        workers[owner(state, 0)].insert(state, 0, start.blankIndex(), 0, h,
+                                        -1L, NONE);
+    }
+
+    /* Expands every state with f <= the current bound on all threads. */
+    public boolean step() {
+        if (goal.get() >= 0)
+            return true;
+        if (bound == Integer.MAX_VALUE)
+            return false;
+        pending.set(workers.length);
+        Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i].startLayer();
+            threads[i] = new Thread(workers[i], "hda-" + i);
+            threads[i].start();
+        }
+        try {
+            for (Thread t : threads)
+                t.join();
+        }
+        catch (InterruptedException e) {
+            done = true;
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search interrupted");
+        }
+        if (failure != null)
+            throw failure;
+        long frontier = 0;
+        for (Worker w : workers)
+            frontier += w.peak;
+        stats.frontier(frontier);
+        if (goal.get() >= 0)
+            return true;
+        int next = Integer.MAX_VALUE;
+        for (Worker w : workers)
+            next = Math.min(next, w.minDeferred());
+        bound = next;
+        return false;
+    }
+
+    /* Returns the moves to the goal, found by following parent references
+     * across the workers' node pools. */
+    public byte[] path() {
+        long ref = goal.get();
+        Worker w = workers[(int) (ref >>> 32)];
+        int j = (int) ref;
+        byte[] path = new byte[w.g[j]];
+        while (w.parent[j] != -1L) {
+            path[w.g[j] - 1] = w.move[j];
+            ref = w.parent[j];
+            w = workers[(int) (ref >>> 32)];
+            j = (int) ref;
+        }
+        return path;
+    }
+
+    /* Returns the worker that owns the state at s[off]. Uses the high bits
+     * of a second mix of the hash, since StateTable uses the low bits. */
+    private int owner(long[] s, int off) {
+        long mixed = (Board.hash(s, off, W) * 0x9E3779B1) & 0xFFFFFFFFL;
+        return (int) ((mixed * workers.length) >>> 32);
+    }
+
+    /* A worker thread and the part of the search space it owns. */
+    private class Worker implements Runnable {
+        private int id;
+        /* Node pool: packed states back to back and, for each node, moves
+         * so far, estimate, index of the empty block, last move, whether it
+         * has been expanded, and the reference to its parent. */
+        private long[] states;
+        private int[] g;
+        private int[] h;
+        private int[] blank;
+        private byte[] move;
+        private boolean[] closed;
+        private long[] parent;
+        private int count;
+        /* Maps each owned state to its node. */
+        private StateTable table;
+        /* Nodes to expand in this layer, and nodes deferred to later layers
+         * by f. */
+        private int[] stack;
+        private int top;
+        private int[][] deferred;
+        private int[] deferredSize;
+        /* Incoming batches, and the batch being filled for every worker. */
+        private ConcurrentLinkedQueue<long[]> inbox =
+            new ConcurrentLinkedQueue<long[]>();
+        private long[][] out;
+        private int[] outSize;
+        /* Scratch states. */
+        private long[] cur;
+        private long[] next;
+        /* Counts for SolverStats, added to it after each layer, and the most
+         * nodes this worker has had waiting at once (nodes less expansions,
+         * so reopened nodes make it a little low). */
+        private long expansions;
+        private long generated;
+        private long expanded;
+        private long duplicates;
+        private long evals;
+        private long peak;
+
+        Worker(int id) {
+            this.id = id;
+            int capacity = 1024;
+            states = new long[capacity * W];
+            g = new int[capacity];
+            h = new int[capacity];
+            blank = new int[capacity];
+            move = new byte[capacity];
+            closed = new boolean[capacity];
+            parent = new long[capacity];
+            table = new StateTable(W);
+            stack = new int[capacity];
+            out = new long[workers.length][BATCH * R];
+            outSize = new int[workers.length];
+            deferred = new int[64][];
+            deferredSize = new int[64];
+            cur = new long[W];
+            next = new long[W];
+        }
+
+        /* Moves the nodes deferred to the new bound onto the stack. */
+        void startLayer() {
+            if (bound < deferred.length && deferred[bound] != null) {
+                for (int i = 0; i < deferredSize[bound]; i++)
+                    push(deferred[bound][i]);
+                deferred[bound] = null;
+                deferredSize[bound] = 0;
+            }
+        }
+
+        /* Returns the smallest f of a deferred node, MAX_VALUE if none. */
+        int minDeferred() {
+            for (int f = bound + 1; f < deferred.length; f++) {
+                if (deferredSize[f] > 0)
+                    return f;
+            }
+            return Integer.MAX_VALUE;
+        }
+
+        public void run() {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            long cpu = bean.getCurrentThreadCpuTime();
+            try {
+                work();
+            }
+            catch (RuntimeException e) {
+                if (failure == null)
+                    failure = e;
+                done = true;
+            }
+            finally {
+                stats.add(generated, expanded, duplicates, evals,
+                          Math.max(0, bean.getCurrentThreadCpuTime() - cpu));
+                generated = expanded = duplicates = evals = 0;
+            }
+        }
+
+        private void work() {
+            int expansions = 0;
+            int reported = count;
+            while (!done) {
+                long[] batch = inbox.poll();
+                if (batch != null) {
+                    receive(batch);
+                    pending.decrementAndGet();
+                    continue;
+                }
+                if (top > 0) {
+                    int j = stack[--top];
+                    if (!closed[j] && g[j] + h[j] <= bound)
+                        expand(j);
+                    if (++expansions % FLUSH == 0) {
+                        flush();
+                        long total = nodes.addAndGet(count - reported);
+                        reported = count;
+                        budget.check(total * NODE_BYTES);
+                    }
+                    continue;
+                }
+                // Out of work: hand over partial batches and wait for more.
+                flush();
+                pending.decrementAndGet();
+                int idle = 0;
+                while (true) {
+                    if (done)
+                        return;
+                    batch = inbox.poll();
+                    if (batch != null) {
+                        pending.incrementAndGet();
+                        receive(batch);
+                        pending.decrementAndGet();
+                        break;
+                    }
+                    if (pending.get() == 0)
+                        return;
+                    if (++idle < 100)
+                        Thread.onSpinWait();
+                    else
+                        LockSupport.parkNanos(10000);
+                }
+            }
+        }
+
+        /* Expands node j, or ends the search if it's the goal. */
+        private void expand(int j) {
+            closed[j] = true;
+            expanded++;
+            peak = Math.max(peak, count - ++expansions);
+            System.arraycopy(states, j * W, cur, 0, W);
+            if (h[j] == 0 && blank[j] == N * N - 1
+                && Arrays.equals(cur, goalState)) {
+                goal.compareAndSet(-1L, (long) id << 32 | j);
+                done = true;
+                return;
+            }
+            long ref = (long) id << 32 | j;
+            for (int dir = Board.UP; dir <= Board.RIGHT; dir++) {
+                if (dir == (move[j] ^ 1))
+                    continue;
+                int to = Board.target(N, blank[j], dir);
+                if (to < 0)
+                    continue;
+                int tile = Board.tileAt(cur, N, to);
+                Board.slide(cur, next, N, blank[j], to);
+                int hNext = heuristic.update(next, N, h[j], tile, to, blank[j]);
+                generated++;
+                evals++;
+                int owner = owner(next, 0);
+                if (owner == id)
+                    insert(next, 0, to, g[j] + 1, hNext, ref, dir);
+                else
+                    send(owner, to, g[j] + 1, hNext, ref, dir);
+            }
+        }
+
+        /* Adds a node for the state at s[off], or reopens the existing one
+         * if this path to it is shorter. */
+        void insert(long[] s, int off, int b, int moves, int estimate,
+                    long ref, int dir) {
+            int j = table.get(s, off);
+            if (j >= 0) {
+                if (moves >= g[j]) {
+                    duplicates++;
+                    return;
+                }
+                closed[j] = false;
+            }
+            else {
+                if (count == g.length)
+                    grow();
+                j = count++;
+                System.arraycopy(s, off, states, j * W, W);
+                h[j] = estimate;
+                blank[j] = b;
+                table.put(s, off, j);
+            }
+            g[j] = moves;
+            move[j] = (byte) dir;
+            parent[j] = ref;
+            int f = moves + estimate;
+            if (f <= bound)
+                push(j);
+            else
+                defer(f, j);
+        }
+
+        /* Appends the state in next to the batch for its owner. */
+        private void send(int owner, int b, int moves, int estimate, long ref,
+                          int dir) {
+            long[] batch = out[owner];
+            int at = outSize[owner];
+            System.arraycopy(next, 0, batch, at, W);
+            batch[at + W] = moves | (long) estimate << 16 | (long) dir << 32
+                          | (long) b << 40;
+            batch[at + W + 1] = ref;
+            outSize[owner] = at + R;
+            if (outSize[owner] == batch.length)
+                flush(owner);
+        }
+
+        private void flush() {
+            for (int w = 0; w < out.length; w++) {
+                if (outSize[w] > 0)
+                    flush(w);
+            }
+        }
+
+        private void flush(int owner) {
+            pending.incrementAndGet();
+            workers[owner].inbox.add(Arrays.copyOf(out[owner], outSize[owner]));
+            outSize[owner] = 0;
+        }
+
+        private void receive(long[] batch) {
+            for (int at = 0; at < batch.length; at += R) {
+                long meta = batch[at + W];
+                insert(batch, at, (int) (meta >>> 40),
+                       (int) (meta & 0xFFFF), (int) ((meta >>> 16) & 0xFFFF),
+                       batch[at + W + 1], (int) ((meta >>> 32) & 0xFF));
+            }
+        }
+
+        private void push(int j) {
+            if (top == stack.length)
+                stack = Arrays.copyOf(stack, 2 * top);
+            stack[top++] = j;
+        }
+
+        private void defer(int f, int j) {
+            if (f >= deferred.length) {
+                deferred = Arrays.copyOf(deferred, 2 * f);
+                deferredSize = Arrays.copyOf(deferredSize, 2 * f);
+            }
+            if (deferred[f] == null)
+                deferred[f] = new int[16];
+            else if (deferredSize[f] == deferred[f].length)
+                deferred[f] = Arrays.copyOf(deferred[f], 2 * deferredSize[f]);
+            deferred[f][deferredSize[f]++] = j;
+        }
+
+        private void grow() {
+            int capacity = 2 * g.length;
+            states = Arrays.copyOf(states, capacity * W);
+            g = Arrays.copyOf(g, capacity);
+            h = Arrays.copyOf(h, capacity);
+            blank = Arrays.copyOf(blank, capacity);
+            move = Arrays.copyOf(move, capacity);
+            closed = Arrays.copyOf(closed, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Compilation:  javac-algs4 PatternDatabase.java
+ * Execution:
+ * Dependencies: Board.java, Heuristic.java
+ *
+ * Description: An additive pattern database heuristic. The tiles are split
+ *              into disjoint patterns; for each pattern, a table gives the
+ *              fewest moves of that pattern's tiles needed to bring them to
+ *              their final positions, whatever the other tiles do. Since no
+ *              move is counted by two tables, the sum over all patterns is an
+ *              admissible estimate (and a much stronger one than manhattan
+ *              distance on the 15- and 24-puzzles).
+ *              It is not consistent: an entry is the fewest moves over every
+ *              region the empty block could be in (see
+ *              PatternDatabaseBuilder.java), so one move can change the
+ *              estimate by more than 1. A*, HDA* and MM reopen states reached
+ *              again by fewer moves and IDA* needs only admissibility; ARA*
+ *              repeats its last round until the solution is shortest, and
+ *              external A* takes the larger of a state's estimate and its
+ *              parent's minus 1 (pathmax). update() itself returns the
+ *              plain estimate, since the searches compute later estimates
+ *              from it by differencing.
+ *              Tables are built offline by PatternDatabaseBuilder and memory
+ *              mapped read-only here, so loading takes no time and the pages
+ *              are shared by every Solver (and every process) using them.
+ *              A PatternDatabase is immutable and safe to share between
+ *              threads; open() returns the same instance for the same
+ *              directory.
+ *
+ *              Table file layout (big-endian):
+ *              int MAGIC, int N, int k, k ints for the tiles of the pattern,
+ *              then one byte per placement of the pattern's tiles, in the
+ *              order given by rank().
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class PatternDatabase implements Heuristic {
+
+    static final int MAGIC = 0x50444231; // "PDB1"
+    /* Patterns are limited to 8 tiles so that their positions fit in a long,
+     * one byte each, and to boards of at most 64 cells so that sets of cells
+     * fit in a long. */
+    static final int MAX_TILES = 8;
+
+    /* Databases opened so far, by canonical directory path and N. */
+    private static HashMap<String, PatternDatabase> opened =
+        new HashMap<String, PatternDatabase>();
+
+    private int N;
+    /* Tables and the patterns they are for. */
+    private MappedByteBuffer[] tables;
+    private int[][] patterns;
+    /* For every tile, the table whose pattern holds it (-1 if none) and its
+     * position within that pattern. */
+    private int[] tableOf;
+    private int[] slotOf;
+
+    /* Opens the tables in the given files, which must be for the same N and
+     * have disjoint patterns. */
+    public PatternDatabase(String... files) throws IOException {
+        tables = new MappedByteBuffer[files.length];
+        patterns = new int[files.length][];
+        for (int t = 0; t < files.length; t++) {
+            RandomAccessFile raf = new RandomAccessFile(files[t], "r");
+            try {
+                if (raf.readInt() != MAGIC)
+                    throw new IOException(files[t] + " is not a pattern database");
+                int n = raf.readInt();
+                int k = raf.readInt();
+                if (t == 0) {
+                    N = n;
+                    tableOf = new int[N * N];
+                    slotOf = new int[N * N];
+                    Arrays.fill(tableOf, -1);
+                }
+                if (n != N)
+                    throw new IOException(files[t] + " is for a different N");
+                patterns[t] = new int[k];
+                for (int i = 0; i < k; i++) {
+                    int tile = raf.readInt();
+                    if (tile < 1 || tile >= N * N || tableOf[tile] >= 0)
+                        throw new IOException(files[t] + " overlaps another pattern");
+                    patterns[t][i] = tile;
+                    tableOf[tile] = t;
+                    slotOf[tile] = i;
+                }
+                long size = size(N * N, k);
+                long offset = raf.getFilePointer();
+                if (raf.length() != offset + size)
+                    throw new IOException(files[t] + " is truncated");
+                tables[t] = raf.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                                                 offset, size);
+            }
+            finally {
+                raf.close();
+            }
+        }
+    }
+
+    /* Returns the database made of every table for N in the given directory
+     * (files named as by PatternDatabaseBuilder.fileName()). Opening the
+     * same directory again returns the same instance. */
+    public static synchronized PatternDatabase open(String dir, int N)
+        throws IOException {
+        String key = new File(dir).getCanonicalPath() + "/" + N;
+        PatternDatabase db = opened.get(key);
+        if (db == null) {
+            String prefix = "pdb-" + N + "-";
+            File[] files = new File(dir).listFiles();
+            if (files == null)
+                throw new IOException(dir + " is not a directory");
+            String[] names = new String[files.length];
+            int count = 0;
+            for (File f : files) {
+                if (f.getName().startsWith(prefix) && f.getName().endsWith(".bin"))
+                    names[count++] = f.getPath();
+            }
+            if (count == 0)
+                throw new IOException("No pattern databases for N = " + N
+                                      + " in " + dir);
+            Arrays.sort(names, 0, count);
+            db = new PatternDatabase(Arrays.copyOf(names, count));
+            opened.put(key, db);
+        }
+        return db;
+    }
+
+    /* Returns the sum of the table entries for every pattern. */
+    public int estimate(long[] state, int N) {
+        check(N);
+        int total = 0;
+        for (int t = 0; t < tables.length; t++)
+            total += lookup(t, positions(state, t));
+        return total;
+    }
+
+    /* Only the table whose pattern holds the moved tile changes. Its entry
+     * before the move is found by putting the tile back at from. Takes
+     * O(k) word searches for a pattern of k tiles. */
+    public int update(long[] state, int N, int h, int tile, int from, int to) {
+        int t = tableOf[tile];
+        if (t < 0)
+            return h;
+        long after = positions(state, t);
+        int shift = 8 * slotOf[tile];
+        long before = (after & ~(0xFFL << shift)) | ((long) from << shift);
+        return h - lookup(t, before) + lookup(t, after);
+    }
+
+    /* Returns the positions of the tiles of pattern t, one byte each in the
+     * order of the pattern. */
+    private long positions(long[] state, int t) {
+        int[] pattern = patterns[t];
+        long positions = 0;
+        for (int i = 0; i < pattern.length; i++)
+            positions |= (long) Board.indexOf(state, N, pattern[i]) << 8 * i;
+        return positions;
+    }
+
+    private int lookup(int t, long positions) {
+        int k = patterns[t].length;
+        return tables[t].get((int) rank(positions, k, N * N)) & 0xFF;
+    }
+
+    private void check(int N) {
+        if (N != this.N)
+            throw new IllegalArgumentException("Pattern database is for N = "
+                                               + this.N);
+    }
+
+    /* Returns the number of placements of k distinct tiles on C cells,
+     * C! / (C - k)!. */
+    static long size(int C, int k) {
+        long size = 1;
+        for (int i = 0; i < k; i++)
+            size *= C - i;
+        return size;
+    }
+
+    /* Returns the index of a placement of k tiles on C cells (positions one
+     * byte each, first tile lowest). The first tile has C choices, the
+     * second C - 1 (any cell but the first's), and so on; the index is the
+     * mixed-radix number whose digits are those choices. */
+    static long rank(long positions, int k, int C) {
+        long rank = 0;
+        long seen = 0;
+        for (int i = 0; i < k; i++) {
+            int p = (int) (positions >>> 8 * i) & 0xFF;
+            int digit = p - Long.bitCount(seen & ((1L << p) - 1));
+            rank = rank * (C - i) + digit;
+            seen |= 1L << p;
+        }
+        return rank;
+    }
+
+    /* Inverse of rank(). */
+    static long unrank(long rank, int k, int C) {
+        int[] digits = new int[k];
+        for (int i = k - 1; i >= 0; i--) {
+            digits[i] = (int) (rank % (C - i));
+            rank /= C - i;
+        }
+        long positions = 0;
+        long seen = 0;
+        for (int i = 0; i < k; i++) {
+            int p = -1;
+            for (int d = digits[i]; d >= 0; d--) {
+                p++;
+                while ((seen & (1L << p)) != 0)
+                    p++;
+            }
+            positions |= (long) p << 8 * i;
+            seen |= 1L << p;
+        }
+        return positions;
+    }
+}
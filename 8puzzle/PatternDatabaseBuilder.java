@@ -0,0 +1,316 @@
+/*
+ * Compilation:  javac-algs4 PatternDatabaseBuilder.java
+ * Execution:    java-algs4 PatternDatabaseBuilder N dir [threads] [tiles ...]
+ *               e.g. java-algs4 PatternDatabaseBuilder 4 pdb
+ *                    java-algs4 PatternDatabaseBuilder 4 pdb 8 1,2,3,4 5,6,7,8
+ * Dependencies: PatternDatabase.java
+ *
+ * Description: Builds the tables of an additive pattern database (see
+ *              PatternDatabase.java) by breadth-first search backwards from
+ *              the goal, one table per pattern, and writes them to dir.
+ *              Patterns are comma-separated tile lists; by default they are
+ *              4-4 for the 8-puzzle, 6-6-3 for the 15-puzzle and 6-6-6-6
+ *              for the 24-puzzle.
+ *
+ *              A search state is the placement of the pattern's tiles plus
+ *              the region of free cells the empty block is in (all the other
+ *              tiles are indistinguishable, so moving the empty block within
+ *              its region is free). Each move of a pattern tile into the
+ *              region costs 1, so plain breadth-first search finds the
+ *              distances. A bitset marks the placements with an entry at
+ *              the current level, and each level is found by scanning only
+ *              those, split across threads. Every thread writes the same
+ *              value to an entry, so entries need no locking; bits of the
+ *              next level's bitset are set by compare-and-set.
+ *              The search needs one byte per placement per cell: about 92MB
+ *              for a 6-tile pattern of the 15-puzzle and 3.2GB for one of
+ *              the 24-puzzle, plus two bits per placement for the bitsets.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class PatternDatabaseBuilder {
+
+    private static final byte UNSEEN = (byte) 0xFF;
+    /* Entries in one chunk of the distance array. */
+    private static final int CHUNK = 1 << 30;
+
+    private int N;
+    private int C;          // number of cells
+    private int[] pattern;
+    private int k;
+    private long size;      // number of placements
+    private long all;       // set of all cells
+    private long notFirst;  // cells that aren't in the first column
+    private long notLast;   // cells that aren't in the last column
+    /* Distance for every (placement, region) pair, indexed by
+     * placement * C + lowest cell of the region. */
+    private byte[][] dist;
+    /* Placements with an entry at the level being expanded, and at the
+     * level after it. */
+    private AtomicLongArray frontier;
+    private AtomicLongArray reached;
+
+    /* Prepares to build the table for a pattern of tiles on an N x N
+     * board. */
+    public PatternDatabaseBuilder(int N, int[] pattern) {
+        if (N * N > 64 || pattern.length > PatternDatabase.MAX_TILES)
+            throw new IllegalArgumentException("Patterns are limited to "
+                + PatternDatabase.MAX_TILES + " tiles on boards up to 8 x 8");
+        this.N = N;
+        this.C = N * N;
+        this.pattern = pattern.clone();
+        this.k = pattern.length;
+        this.size = PatternDatabase.size(C, k);
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Pattern is too large");
+        all = C == 64 ? -1L : (1L << C) - 1;
+        long firstColumn = 0;
+        for (int r = 0; r < N; r++)
+            firstColumn |= 1L << r * N;
+        notFirst = all & ~firstColumn;
+        notLast = all & ~(firstColumn << (N - 1));
+    }
+
+    /* Runs the breadth-first search on the given number of threads and
+     * returns the table: the distance of every placement, minimized over
+     * the regions the empty block can be in. The minimum keeps the table
+     * small and admissible but not consistent: a move that splits or joins
+     * regions can change an entry by more than 1. */
+    public byte[] build(int threads) throws InterruptedException {
+        long entries = size * C;
+        dist = new byte[(int) ((entries + CHUNK - 1) / CHUNK)][];
+        for (int c = 0; c < dist.length; c++) {
+            dist[c] = new byte[(int) Math.min(CHUNK, entries - (long) c * CHUNK)];
+            Arrays.fill(dist[c], UNSEEN);
+        }
+        long goal = 0;
+        for (int i = 0; i < k; i++)
+            goal |= (long) (pattern[i] - 1) << 8 * i;
+        long region = flood(1L << (C - 1), all & ~occupied(goal));
+        long start = PatternDatabase.rank(goal, k, C);
+        set(start * C + Long.numberOfTrailingZeros(region), (byte) 0);
+        int words = (int) ((size + 63) >>> 6);
+        frontier = new AtomicLongArray(words);
+        reached = new AtomicLongArray(words);
+        mark(frontier, start);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int d = 0; d < 254; d++) {
+                final byte level = (byte) d;
+                List<Future<Boolean>> parts = new ArrayList<Future<Boolean>>();
+                // whole words per slice, so no two threads scan one word
+                long slice = ((size + 4 * threads - 1) / (4 * threads) + 63) & ~63L;
+                for (long lo = 0; lo < size; lo += slice) {
+                    final long from = lo;
+                    final long to = Math.min(size, lo + slice);
+                    parts.add(pool.submit(() -> expand(from, to, level)));
+                }
+                boolean grew = false;
+                for (Future<Boolean> part : parts)
+                    grew |= part.get();
+                if (!grew)
+                    break;
+                AtomicLongArray done = frontier;
+                frontier = reached;
+                reached = done;
+                for (int w = 0; w < words; w++)
+                    reached.set(w, 0);
+            }
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        finally {
+            pool.shutdown();
+        }
+        frontier = null;
+        reached = null;
+
+        byte[] table = new byte[(int) size];
+        for (long r = 0; r < size; r++) {
+            int min = 0xFF;
+            for (int cell = 0; cell < C; cell++)
+                min = Math.min(min, get(r * C + cell) & 0xFF);
+            table[(int) r] = (byte) min;
+        }
+        dist = null;
+        return table;
+    }
+
+    /* Expands every state at the given level among placements [from, to),
+     * which are those marked in frontier. Returns true if any new state was
+     * reached. from is a multiple of 64. */
+    private boolean expand(long from, long to, byte level) {
+        boolean grew = false;
+        for (int w = (int) (from >>> 6); w < (to + 63) >>> 6; w++) {
+            for (long bits = frontier.get(w); bits != 0; bits &= bits - 1)
+                grew |= expand(((long) w << 6) + Long.numberOfTrailingZeros(bits),
+                               level);
+        }
+        return grew;
+    }
+
+    /* Expands the states of placement r at the given level. Returns true
+     * if any new state was reached. */
+    private boolean expand(long r, byte level) {
+        boolean grew = false;
+        byte next = (byte) (level + 1);
+        long positions = PatternDatabase.unrank(r, k, C);
+        long occupied = occupied(positions);
+        for (int cell = 0; cell < C; cell++) {
+            if (get(r * C + cell) != level)
+                continue;
+            long region = flood(1L << cell, all & ~occupied);
+            for (int i = 0; i < k; i++) {
+                int p = (int) (positions >>> 8 * i) & 0xFF;
+                long targets = neighbors(1L << p) & region;
+                while (targets != 0) {
+                    int q = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+                    long moved = (positions & ~(0xFFL << 8 * i))
+                               | ((long) q << 8 * i);
+                    long free = all & ~(occupied & ~(1L << p) | (1L << q));
+                    long rank = PatternDatabase.rank(moved, k, C);
+                    long index = rank * C
+                               + Long.numberOfTrailingZeros(flood(1L << p, free));
+                    if (get(index) == UNSEEN) {
+                        set(index, next);
+                        mark(reached, rank);
+                        grew = true;
+                    }
+                }
+            }
+        }
+        return grew;
+    }
+
+    /* Sets bit r of a bitset shared between threads. */
+    private static void mark(AtomicLongArray bits, long r) {
+        int w = (int) (r >>> 6);
+        long bit = 1L << r;
+        long old = bits.get(w);
+        while ((old & bit) == 0 && !bits.compareAndSet(w, old, old | bit))
+            old = bits.get(w);
+    }
+
+    /* Returns the set of cells holding the pattern's tiles. */
+    private long occupied(long positions) {
+        long occupied = 0;
+        for (int i = 0; i < k; i++)
+            occupied |= 1L << ((positions >>> 8 * i) & 0xFF);
+        return occupied;
+    }
+
+    /* Returns the set of cells adjacent to a cell in the given set. */
+    private long neighbors(long cells) {
+        return ((cells >>> N) | (cells << N) | ((cells & notFirst) >>> 1)
+                | ((cells & notLast) << 1)) & all;
+    }
+
+    /* Returns the cells of free reachable from seed through free cells. */
+    private long flood(long seed, long free) {
+        long region = seed;
+        while (true) {
+            long grown = region | (neighbors(region) & free);
+            if (grown == region)
+                return region;
+            region = grown;
+        }
+    }
+
+    private byte get(long i) {
+        return dist[(int) (i / CHUNK)][(int) (i % CHUNK)];
+    }
+
+    private void set(long i, byte d) {
+        dist[(int) (i / CHUNK)][(int) (i % CHUNK)] = d;
+    }
+
+    /* Returns the file name of the table for a pattern. */
+    static String fileName(int N, int[] pattern) {
+        StringBuilder s = new StringBuilder("pdb-" + N);
+        for (int tile : pattern)
+            s.append("-" + tile);
+        return s.append(".bin").toString();
+    }
+
+    /* Writes a table in the layout described in PatternDatabase.java. */
+    static void write(File file, int N, int[] pattern, byte[] table)
+        throws IOException {
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        try {
+            out.writeInt(PatternDatabase.MAGIC);
+            out.writeInt(N);
+            out.writeInt(pattern.length);
+            for (int tile : pattern)
+                out.writeInt(tile);
+            out.write(table);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /* Returns the default partition of the tiles for an N x N board. */
+    static int[][] defaultPatterns(int N) {
+        switch (N) {
+            case 3: return new int[][] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 } };
+            case 4: return new int[][] { { 1, 5, 6, 9, 10, 13 },
+                                         { 7, 8, 11, 12, 14, 15 },
+                                         { 2, 3, 4 } };
+            case 5: return new int[][] { { 1, 2, 3, 6, 7, 8 },
+                                         { 4, 5, 9, 10, 14, 15 },
+                                         { 11, 12, 16, 17, 21, 22 },
+                                         { 13, 18, 19, 20, 23, 24 } };
+            default: throw new IllegalArgumentException(
+                "No default patterns for N = " + N + "; list them");
+        }
+    }
+
+    /* Builds the tables for N into dir, one after another, each one using
+     * all threads. */
+    public static void main(String[] args) throws Exception {
+        int N = Integer.parseInt(args[0]);
+        File dir = new File(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                                      : Runtime.getRuntime().availableProcessors();
+        int[][] patterns;
+        if (args.length > 3) {
+            patterns = new int[args.length - 3][];
+            for (int p = 0; p < patterns.length; p++) {
+                String[] tiles = args[p + 3].split(",");
+                patterns[p] = new int[tiles.length];
+                for (int i = 0; i < tiles.length; i++)
+                    patterns[p][i] = Integer.parseInt(tiles[i]);
+            }
+        }
+        else {
+            patterns = defaultPatterns(N);
+        }
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Cannot create " + dir);
+        for (int[] pattern : patterns) {
+            Stopwatch sw = new Stopwatch();
+            byte[] table = new PatternDatabaseBuilder(N, pattern).build(threads);
+            File file = new File(dir, fileName(N, pattern));
+            write(file, N, pattern, table);
+            StdOut.printf("%s: %d entries in %.1fs\n", file, table.length,
+                          sw.elapsedTime());
+        }
+    }
+}
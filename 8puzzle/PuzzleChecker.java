@@ -1,11 +1,31 @@
 /*************************************************************************
  *  Compilation:  javac PuzzleChecker.java
- *  Execution:    java PuzzleChecker filename1.txt filename2.txt ...
- *  Dependencies: Board.java Solver.java In.java
+ *  Execution:    java PuzzleChecker [options] filename1.txt filename2.txt ...
+ *  Dependencies: Board.java Solver.java BatchSolver.java SolutionCache.java
+ *                BoardFile.java
  *
  *  This program creates an initial board from each filename specified
  *  on the command line and finds the minimum number of moves to
- *  reach the goal state.
+ *  reach the goal state. A board file (see BoardFile.java) is solved
+ *  board by board, printed as "filename[i]: moves".
+ *
+ *  Options:
+ *    -j threads   solve on this many threads (default 1)
+ *    -t millis    give up on a puzzle after this long ("timeout")
+ *    -m megabytes give up on a puzzle whose search needs more memory
+ *                 ("out of memory")
+ *    -w weight    weighted A*: moves at most weight times the minimum
+ *    -anytime     anytime A* from weight -w (default 3) down to 1, stopping
+ *                 at the -t time limit with the best solution so far;
+ *                 solutions that may not be minimal print "moves (gap g)"
+ *    -x dir       external-memory A*, writing its files in dir; it finds
+ *                 minimal solutions only, so not with -w or -anytime
+ *    -b megabytes states external-memory A* keeps in memory before
+ *                 writing them to disk (default 64)
+ *    -cache n     keep up to n solutions and reuse them for repeated
+ *                 boards and their mirror images
+ *    -ordered     print results in input order rather than as they finish
+ *    -summary     finish with throughput, p50/p99 solve time and timeouts
  *
  *  % java PuzzleChecker puzzle*.txt
  *  puzzle00.txt: 0
@@ -25,27 +45,91 @@
  *
  *************************************************************************/
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
 public class PuzzleChecker {
 
-    public static void main(String[] args) {
+    public static void main(String[] args)
+        throws InterruptedException, IOException {
+
+        int threads = 1;
+        long timeLimit = 0;
+        long memoryLimit = 0;
+        boolean ordered = false;
+        boolean summary = false;
+        double weight = 0;
+        boolean anytime = false;
+        SolutionCache cache = null;
+        String disk = null;
+        long buffer = 0;
+        List<String> files = new ArrayList<String>();
+        List<String> boardFiles = new ArrayList<String>();
 
         // for each command-line argument
-        for (String filename : args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-j"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-t"))
+                timeLimit = Long.parseLong(args[++i]);
+            else if (args[i].equals("-m"))
+                memoryLimit = Long.parseLong(args[++i]) << 20;
+            else if (args[i].equals("-w"))
+                weight = Double.parseDouble(args[++i]);
+            else if (args[i].equals("-anytime"))
+                anytime = true;
+            else if (args[i].equals("-x"))
+                disk = args[++i];
+            else if (args[i].equals("-b"))
+                buffer = Long.parseLong(args[++i]) << 20;
+            else if (args[i].equals("-cache"))
+                cache = new SolutionCache(Integer.parseInt(args[++i]));
+            else if (args[i].equals("-ordered"))
+                ordered = true;
+            else if (args[i].equals("-summary"))
+                summary = true;
+            else if (BoardFile.isBoardFile(args[i]))
+                boardFiles.add(args[i]);
+            else
+                files.add(args[i]);
+        }
 
-            // read in the board specified in the filename
-            In in = new In(filename);
-            int N = in.readInt();
-            int[][] tiles = new int[N][N];
-            for (int i = 0; i < N; i++) {
-                for (int j = 0; j < N; j++) {
-                    tiles[i][j] = in.readInt();
-                }
-            }
+        if (disk != null && (anytime || weight > 0))
+            throw new IllegalArgumentException("-x can't be combined with -w "
+                                               + "or -anytime");
 
-            // solve the slider puzzle
-            Board initial = new Board(tiles);
-            Solver solver = new Solver(initial);
-            System.out.println(filename + ": " + solver.moves());
+        // solve the slider puzzles
+        SolverOptions options = new SolverOptions().timeLimit(timeLimit)
+                                                   .memoryLimit(memoryLimit)
+                                                   .cache(cache);
+        if (anytime)
+            options.algorithm(SolverOptions.Algorithm.ARASTAR)
+                   .weight(weight > 0 ? weight : 3.0);
+        else if (weight > 0)
+            options.weight(weight);
+        if (disk != null)
+            options.algorithm(SolverOptions.Algorithm.EXTERNAL)
+                   .diskDirectory(disk);
+        if (buffer > 0)
+            options.diskBuffer(buffer);
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(System.out), 1 << 16));
+        BatchSolver batch = new BatchSolver(options, threads, ordered);
+        List<BatchSolver.Summary> totals = new ArrayList<BatchSolver.Summary>();
+        if (!files.isEmpty() || boardFiles.isEmpty())
+            totals.add(batch.run(files, out));
+        for (String name : boardFiles)
+            totals.add(batch.run(new BoardFile(name), name, out));
+        if (summary) {
+            for (BatchSolver.Summary t : totals)
+                out.println(t);
+            if (cache != null)
+                out.println(cache);
+            out.flush();
         }
     }
 }
@@ -0,0 +1,28 @@
+/*
+ * Compilation:  javac-algs4 Search.java
+ * Execution:
+ * Dependencies:
+ *
+ * Description: A search from one solvable start board toward the goal board,
+ *              run a bounded amount of work at a time. A solution is a path
+ *              of moves of the empty block (Board.UP, Board.DOWN, Board.LEFT,
+ *              Board.RIGHT). It need not be a shortest one if the search
+ *              says so through lowerBound().
+ */
+
+interface Search {
+
+    /* Does one unit of work. Returns true once a solution has been found. */
+    boolean step();
+
+    /* Returns the moves of the empty block from the start board to the goal
+     * board. Only valid after step() has returned true. */
+    byte[] path();
+
+    /* Returns a lower bound on the moves of a shortest solution, which is
+     * the length of path() for searches that find shortest solutions. Only
+     * valid after step() has returned true. */
+    default int lowerBound() {
+        return path().length;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Compilation:  javac-algs4 SearchBudget.java
+ * Execution:
+ * Dependencies: SearchLimitException.java, SolverStats.java, SolveEvent.java
+ *
+ * Description: The time and memory a single search may use, and the
+ *              statistics it keeps. Searches call check() every few thousand
+ *              nodes with an estimate of the memory they hold; check() also
+ *              sends a progress report when one is due. Safe to call from
+ *              several threads.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.function.Consumer;
+
+class SearchBudget {
+
+    private long deadline;   // System.nanoTime() to stop at, if timed
+    private boolean timed;
+    private long maxBytes;   // 0 if unlimited
+    private SolverStats stats;
+    /* Progress listener, null if none, and when the next report is due. */
+    private Consumer<SolverStats> progress;
+    private long interval;
+    private volatile long nextReport;
+    /* When the search started, and the thread that started it with its CPU
+     * time then. */
+    private long start;
+    private long thread;
+    private long cpuStart;
+
+    /* Starts a budget of the given milliseconds and bytes from now. 0 means
+     * no limit. */
+    SearchBudget(long timeLimit, long memoryLimit) {
+        this(timeLimit, memoryLimit, new SolverStats(), null, 1000);
+    }
+
+    /* Starts a budget of the given milliseconds and bytes from now, keeping
+     * the given stats and sending them to progress (if not null) every
+     * interval milliseconds. */
+    SearchBudget(long timeLimit, long memoryLimit, SolverStats stats,
+                 Consumer<SolverStats> progress, long interval) {
+        start = System.nanoTime();
+        timed = timeLimit > 0;
+        deadline = start + timeLimit * 1000000L;
+        maxBytes = memoryLimit;
+        this.stats = stats;
+        this.progress = progress;
+        this.interval = interval * 1000000L;
+        nextReport = start + this.interval;
+        thread = Thread.currentThread().getId();
+        cpuStart = cpuTime();
+    }
+
+    /* Returns the statistics of the search. */
+    SolverStats stats() {
+        return stats;
+    }
+
+    /* Throws SearchLimitException if the time is up or the search holds
+     * more than the allowed memory. */
+    void check(long bytes) {
+        if (maxBytes > 0 && bytes > maxBytes)
+            throw new SearchLimitException(false, "Search needs more than "
+                                           + maxBytes + " bytes");
+        long now = System.nanoTime();
+        if (timed && now - deadline > 0)
+            throw new SearchLimitException(true, "Search ran out of time");
+        if (now - nextReport >= 0)
+            report(now);
+    }
+
+    /* Sets the wall and CPU time of the stats so far. The CPU time is that
+     * of the thread that started the search plus whatever other threads
+     * have added. */
+    synchronized void finish() {
+        stats.wallNanos = System.nanoTime() - start;
+        stats.cpuNanos += cpuTime() - cpuStart;
+        cpuStart = cpuTime();
+    }
+
+    /* Sends a progress report to the listener and as a JFR event. */
+    private synchronized void report(long now) {
+        if (now - nextReport < 0)
+            return;
+        nextReport = now + interval;
+        SolveEvent.Progress event = new SolveEvent.Progress();
+        if (progress == null && !event.shouldCommit())
+            return;
+        finish();
+        if (event.shouldCommit()) {
+            event.set(stats);
+            event.commit();
+        }
+        if (progress != null)
+            progress.accept(stats);
+    }
+
+    /* Returns the CPU time of the thread that started the search, 0 if the
+     * JVM doesn't measure it. */
+    private long cpuTime() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadCpuTimeSupported())
+            return 0;
+        return Math.max(0, bean.getThreadCpuTime(thread));
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Compilation:  javac-algs4 SearchLimitException.java
+ * Execution:
+ * Dependencies:
+ *
+ * Description: Thrown by Solver when a search runs past the time or memory
+ *              limit set in its SolverOptions.
+ */
+
+public class SearchLimitException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private boolean timeout;
+
+    public SearchLimitException(boolean timeout, String message) {
+        super(message);
+        this.timeout = timeout;
+    }
+
+    /* Returns true if the time limit was hit, false if the memory limit
+     * was. */
+    public boolean isTimeout() {
+        return timeout;
+    }
+}
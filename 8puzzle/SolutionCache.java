@@ -0,0 +1,98 @@
+/*
+ * Compilation:  javac-algs4 SolutionCache.java
+ * Execution:
+ * Dependencies: Board.java
+ *
+ * Description: A bounded cache of shortest solutions that Solvers can share
+ *              (see SolverOptions.cache()). A board and its mirror image in
+ *              the main diagonal (see Board.transpose()) take the same
+ *              number of moves, so both are stored under whichever of the
+ *              two has the smaller packed state, and a hit on the other one
+ *              gets its moves with UP/LEFT and DOWN/RIGHT swapped. When
+ *              full, the least recently used solution is dropped. Only
+ *              solutions known to be shortest are stored. Safe to use from
+ *              several threads.
+ */
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class SolutionCache {
+
+    private int capacity;
+    private long hits;
+    private long misses;
+    /* Moves of the empty block that solve each canonical board, in least
+     * recently used order. */
+    private LinkedHashMap<Board, byte[]> solutions;
+
+    /* Constructs an empty cache of at most capacity solutions. */
+    public SolutionCache(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive");
+        this.capacity = capacity;
+        solutions = new LinkedHashMap<Board, byte[]>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Board, byte[]> e) {
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+    }
+
+    /* Returns the number of solutions in the cache. */
+    public synchronized int size() {
+        return solutions.size();
+    }
+
+    /* Returns the number of lookups that found a solution. */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /* Returns the number of lookups that didn't. */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized String toString() {
+        return String.format("cache: %d solutions, %d hits, %d misses",
+                             solutions.size(), hits, misses);
+    }
+
+    /* Returns the moves that solve the board, or null if the cache doesn't
+     * hold them. */
+    synchronized byte[] get(Board board) {
+        Board mirror = board.transpose();
+        boolean mirrored = isSmaller(mirror, board);
+        byte[] path = solutions.get(mirrored ? mirror : board);
+        if (path == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return mirrored ? swap(path) : path.clone();
+    }
+
+    /* Stores the moves of a shortest solution of the board. */
+    synchronized void put(Board board, byte[] path) {
+        Board mirror = board.transpose();
+        if (isSmaller(mirror, board))
+            solutions.put(mirror, swap(path));
+        else
+            solutions.put(board, path.clone());
+    }
+
+    /* Returns true if a's packed state is smaller than b's. */
+    private static boolean isSmaller(Board a, Board b) {
+        return Arrays.compare(a.packed(), b.packed()) < 0;
+    }
+
+    /* Returns a copy of the moves with UP/LEFT and DOWN/RIGHT swapped, the
+     * moves on the mirror image. */
+    private static byte[] swap(byte[] path) {
+        byte[] swapped = new byte[path.length];
+        for (int i = 0; i < path.length; i++)
+            swapped[i] = (byte) (path[i] ^ 2);
+        return swapped;
+    }
+}
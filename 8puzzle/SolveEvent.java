@@ -0,0 +1,83 @@
+/*
+ * Compilation:  javac-algs4 SolveEvent.java
+ * Execution:
+ * Dependencies: SolverStats.java
+ *
+ * Description: Java Flight Recorder events for solves: one SolveEvent per
+ *              Solver, spanning the whole solve, and a SolveEvent.Progress
+ *              each time a progress report is due (see
+ *              SolverOptions.progress()). Both carry the SolverStats counts.
+ *              They cost next to nothing unless a recording is enabled,
+ *              e.g. java -XX:StartFlightRecording=filename=solve.jfr ...
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("puzzle.Solve")
+@Label("Solve")
+@Category("Puzzle")
+class SolveEvent extends Event {
+
+    @Label("Dimension")
+    int dimension;
+    @Label("Algorithm")
+    String algorithm;
+    @Label("Moves")
+    int moves;
+    @Label("Nodes Generated")
+    long generated;
+    @Label("Nodes Expanded")
+    long expanded;
+    @Label("Duplicates")
+    long duplicates;
+    @Label("Peak Frontier")
+    long peakFrontier;
+    @Label("Heuristic Evaluations")
+    long heuristicEvals;
+    @Label("CPU Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long cpuTime;
+
+    /* Copies the counts of the stats. */
+    void set(SolverStats stats) {
+        generated = stats.generated();
+        expanded = stats.expanded();
+        duplicates = stats.duplicates();
+        peakFrontier = stats.peakFrontier();
+        heuristicEvals = stats.heuristicEvals();
+        cpuTime = stats.cpuNanos();
+    }
+
+    @Name("puzzle.SolveProgress")
+    @Label("Solve Progress")
+    @Category("Puzzle")
+    static class Progress extends Event {
+
+        @Label("Nodes Generated")
+        long generated;
+        @Label("Nodes Expanded")
+        long expanded;
+        @Label("Duplicates")
+        long duplicates;
+        @Label("Peak Frontier")
+        long peakFrontier;
+        @Label("Heuristic Evaluations")
+        long heuristicEvals;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        void set(SolverStats stats) {
+            generated = stats.generated();
+            expanded = stats.expanded();
+            duplicates = stats.duplicates();
+            peakFrontier = stats.peakFrontier();
+            heuristicEvals = stats.heuristicEvals();
+            elapsed = stats.wallNanos();
+        }
+    }
+}
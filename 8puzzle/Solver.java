@@ -3,95 +3,138 @@
  * 10/29/13
  * 
  * Compilation:  javac-algs4 Solver.java
- * Execution:    java-algs4 Solver [filename.txt]
- * Dependencies: algs4 standard libraries, Board.java
+ * Execution:    java-algs4 Solver [filename.txt|boards.bin]
+ *                   [astar|idastar|hdastar|arastar|mm|external] [pdb dir]
+ *                   [weight]
+ * Dependencies: algs4 standard libraries, Board.java, SolverOptions.java,
+ *               BoardFile.java,
+ *               AStarSearch.java, IDAStarSearch.java, ParallelAStarSearch.java,
+ *               ARAStarSearch.java, BidirectionalSearch.java,
+ *               ExternalAStarSearch.java, SolutionCache.java,
+ *               SolverStats.java, SolveEvent.java
  *
  * Description: Gives a minimum-move solution to the 8-puzzle using a greedy
- *              approach (A*).
+ *              approach (A*), iterative-deepening A* when memory is tight or
+ *              hash-distributed A* on several threads for hard boards, or
+ *              a bidirectional search from both ends at once. External-memory
+ *              A* keeps the search on disk when it doesn't fit in memory.
+ *              The heuristic is pluggable (see Heuristics.java).
+ *              Weighted and anytime A* trade solution length for time; the
+ *              solution is then not necessarily minimal, and gap() says by
+ *              how many moves it may be too long.
  */
 
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 public class Solver {
 
-    // MinPQ is from algs4 library
-    /* Priority queues that store future board states. */
-    private MinPQ<SearchNode> initPQ;
-    private MinPQ<SearchNode> twinPQ;
+    /* The input board. */
+    private Board initial;
     /* Whether the puzzle is solvable */
     private boolean solvable;
-    /* Solution. null if the input board is not solvable. */
-    private SearchNode finalBoard;
-
-    /* Search node class. Stores the board state, the number of moves to
-     * get to this state, and the previous Search node that led to this
-     * board state. */
-    private class SearchNode implements Comparable<SearchNode> {
-        private Board board;
-        private int moves;
-        private SearchNode prev;
-
-        public SearchNode(Board b, int m, SearchNode sn) {
-            board = b;
-            moves = m;
-            prev = sn;
-        }
-
-        /* Implements the priority function:
-         * PF = distance + moves to get to the current board state
-         * Uncomment the appropriate lines to use either hamming or manhattan
-         * distances. */
-        public int compareTo(SearchNode other) {
-            //int thisHamming = this.board.hamming() + this.moves;
-            //int otherHamming = this.board.hamming() + other.moves;
-            //return thisHamming - otherHamming;
-            int thisManhattan = this.board.manhattan() + this.moves;
-            int otherManhattan = other.board.manhattan() + other.moves;
-            return thisManhattan - otherManhattan;
-        }
-    }
+    /* Moves of the empty block that solve the input board. null if the
+     * input board is not solvable. */
+    private byte[] path;
+    /* Lower bound on the minimum number of moves. */
+    private int lowerBound;
+    /* What the search did. */
+    private SolverStats stats = new SolverStats();
 
     /* Solves a given input board:
-     * Starting with the initial configuration and a twin configuration (with two
-     * adjacent row elements swapped), simultaneously update the boards as follows:
-     * If the current board (initial configuration) is a solution, store that search
-     * node. The input board is solvable.
-     * If the current board (twin configuration) is a solution, the input board is
-     * not solvable.
-     * Otherwise, look at all neighboring configurations and put them in the priority
-     * queue.
+     * First decide from the permutation parity whether the board is solvable at
+     * all (see isSolvable(Board)). If it is, search from it until the goal is
+     * found and store the moves that lead to it.
      */
     public Solver(Board initial) {
-        initPQ = new MinPQ<SearchNode>();
-        twinPQ = new MinPQ<SearchNode>();
-        initPQ.insert(new SearchNode(initial, 0, null));
-        twinPQ.insert(new SearchNode(initial.twin(), 0, null));
-        SearchNode initSN;
-        SearchNode twinSN;
-        while (true) {
-            initSN = initPQ.delMin();
-            twinSN = twinPQ.delMin();
-
-            if (initSN.board.isGoal()) {
-                finalBoard = initSN;
-                solvable = true;
-                break;
-            }
-            if (twinSN.board.isGoal()) {
-                finalBoard = twinSN;
-                solvable = false;
-                break;
+        this(initial, new SolverOptions());
+    }
+
+    /* Solves a given input board, searching with the given heuristic. */
+    public Solver(Board initial, Heuristic heuristic) {
+        this(initial, new SolverOptions().heuristic(heuristic));
+    }
+
+    /* Solves a given input board with the given options. Throws
+     * SearchLimitException if the search runs past the time or memory limit
+     * in the options. With a cache in the options, a board the cache has a
+     * solution for isn't searched at all. Every solve is recorded as a
+     * SolveEvent for Java Flight Recorder. */
+    public Solver(Board initial, SolverOptions options) {
+        this.initial = initial;
+        SolveEvent event = new SolveEvent();
+        event.begin();
+        SearchBudget budget = new SearchBudget(options.timeLimit(),
+                                               options.memoryLimit(), stats,
+                                               options.progress(),
+                                               options.progressInterval());
+        try {
+            solve(options, budget);
+        }
+        finally {
+            budget.finish();
+            event.end();
+            if (event.shouldCommit()) {
+                event.dimension = initial.dimension();
+                event.algorithm = options.algorithm().name();
+                event.moves = path == null ? -1 : path.length;
+                event.set(stats);
+                event.commit();
             }
-            for (Board initBoard : initSN.board.neighbors()) {
-                if (initSN.prev == null || !initBoard.equals(initSN.prev.board))
-                    initPQ.insert(new SearchNode(initBoard, initSN.moves + 1, 
-                    initSN));
+        }
+    }
+
+    /* Decides whether the input board is solvable and if so finds its
+     * solution, in the cache or by searching. */
+    private void solve(SolverOptions options, SearchBudget budget) {
+        solvable = isSolvable(initial);
+        if (!solvable)
+            return;
+        SolutionCache cache = options.cache();
+        if (cache != null) {
+            path = cache.get(initial);
+            if (path != null) {
+                lowerBound = path.length;
+                return;
             }
-            for (Board twinBoard : twinSN.board.neighbors()) {
-                if (twinSN.prev == null || !twinBoard.equals(twinSN.prev.board))
-                    twinPQ.insert(new SearchNode(twinBoard, twinSN.moves + 1, 
-                    twinSN));
+        }
+        Search search = search(initial, options, budget);
+        while (!search.step())
+            ;
+        path = search.path();
+        lowerBound = search.lowerBound();
+        if (cache != null && lowerBound == path.length)
+            cache.put(initial, path);
+    }
+
+    /* Returns whether or not a board can be solved, without searching.
+     * Every move swaps the empty block with a neighboring tile, which flips the
+     * parity of the permutation taking each tile (and the empty block) to its
+     * final position, and also flips the parity of the distance in rows +
+     * columns from the empty block to its final position. The two parities are
+     * equal for the goal board, so they are equal for every solvable board;
+     * the boards where they are equal are exactly the solvable half.
+     * The permutation parity is found from its cycles in time proportional
+     * to N^2.
+     */
+    public static boolean isSolvable(Board board) {
+        int N = board.dimension();
+        long[] state = board.packed();
+        boolean[] seen = new boolean[N * N];
+        int cycles = 0;
+        for (int i = 0; i < N * N; i++) {
+            if (seen[i])
+                continue;
+            cycles++;
+            for (int j = i; !seen[j]; ) {
+                seen[j] = true;
+                int tile = Board.tileAt(state, N, j);
+                j = tile == 0 ? N * N - 1 : tile - 1;
             }
         }
+        int blank = board.blankIndex();
+        int distance = (N - 1 - blank / N) + (N - 1 - blank % N);
+        return (N * N - cycles) % 2 == distance % 2;
     }
 
     /* Returns whether or not the input board was solvable. */
@@ -103,49 +146,141 @@ public class Solver {
      * solvable. */
     public int moves() {
         if (this.solvable)
-            return finalBoard.moves;
+            return path.length;
         return -1;
     }
 
-    /* Returns a stack of the board configurations from the input board to the final
-     * (goal) configuration. The bottom of the stack should be the input board and
-     * the top of the stack should be the solved board. */
+    /* Returns a lower bound on the minimum number of moves to solve the input
+     * board, equal to moves() unless the solution came from weighted or
+     * anytime A*, or -1 if the board wasn't solvable. */
+    public int lowerBound() {
+        if (this.solvable)
+            return lowerBound;
+        return -1;
+    }
+
+    /* Returns how many moves longer than a minimum-move solution the
+     * solution may be: 0 if it is known to be minimal or the board wasn't
+     * solvable. */
+    public int gap() {
+        if (this.solvable)
+            return path.length - lowerBound;
+        return 0;
+    }
+
+    /* Returns the statistics of the solve: nodes, duplicates, frontier size,
+     * heuristic evaluations and time. */
+    public SolverStats stats() {
+        return stats;
+    }
+
+    /* Returns the board configurations from the input board to the final
+     * (goal) configuration. Only the moves are kept; each board is rebuilt by
+     * replaying the next move as the iteration reaches it. */
     public Iterable<Board> solution() {
-        if (this.solvable) {
-            // Stack is from algs4 library
-            Stack<Board> s = new Stack<Board>();
-            SearchNode curr = finalBoard;
-            while (curr != null) {
-                s.push(curr.board);
-                curr = curr.prev;
-            }
-            return s;
-        }
+        if (this.solvable)
+            return () -> new SolutionIterator();
         return null;
     }
 
+    /*
+     * Replays the solution moves from the input board.
+     */
+    private class SolutionIterator implements Iterator<Board> {
+        private Board curr;
+        private int next = -1;  // index of the move to the next board
+        public boolean hasNext() {
+            return next < path.length;
+        }
+        public Board next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            curr = next < 0 ? initial : curr.move(path[next]);
+            next++;
+            return curr;
+        }
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /* Returns a new search from the given board with the given options. */
+    private static Search search(Board start, SolverOptions options,
+                                 SearchBudget budget) {
+        Heuristic h = options.heuristic();
+        switch (options.algorithm()) {
+            case IDASTAR: return new IDAStarSearch(start, h, budget);
+            case HDASTAR: return new ParallelAStarSearch(start, h, budget,
+                                                         options.threads());
+            case ARASTAR: return new ARAStarSearch(start, h, options.weight(),
+                                                   budget);
+            case MM:      return new BidirectionalSearch(start, h, budget);
+            case EXTERNAL: return new ExternalAStarSearch(start, h, budget,
+                                                          options.diskDirectory(),
+                                                          options.diskBuffer());
+            default:      return new AStarSearch(start, h, options.weight(),
+                                                 budget);
+        }
+    }
+
     /* Takes in as input a file with a board state, attempts to solve that board
      * state, then outputs the number of moves and the configurations leading to the
-     * solution of the input board is solvable.
+     * solution of the input board is solvable. An optional second argument picks
+     * the search algorithm, an optional third one a directory of pattern
+     * databases to use as the heuristic (see PatternDatabaseBuilder.java; "-"
+     * for none) and an optional fourth one the weight for weighted A*.
+     * A binary board file (see BoardFile.java) is solved board by board
+     * instead, printing only "filename[i]: moves" for each, as PuzzleChecker
+     * does.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws java.io.IOException {
         // create initial board from file
-        In in = new In(args[0]);
-        int N = in.readInt();
-        int[][] blocks = new int[N][N];
-        for (int i = 0; i < N; i++)
-            for (int j = 0; j < N; j++)
-                blocks[i][j] = in.readInt();
-        Board initial = new Board(blocks);
+        BoardFile boards = null;
+        Board initial = null;
+        int N;
+        if (BoardFile.isBoardFile(args[0])) {
+            boards = new BoardFile(args[0]);
+            N = boards.dimension();
+        }
+        else {
+            In in = new In(args[0]);
+            N = in.readInt();
+            int[][] blocks = new int[N][N];
+            for (int i = 0; i < N; i++)
+                for (int j = 0; j < N; j++)
+                    blocks[i][j] = in.readInt();
+            initial = new Board(blocks);
+        }
 
         // solve the puzzle
-        Solver solver = new Solver(initial);
+        SolverOptions options = new SolverOptions();
+        if (args.length > 1)
+            options.algorithm(SolverOptions.Algorithm.valueOf(args[1].toUpperCase()));
+        if (args.length > 2 && !args[2].equals("-"))
+            options.heuristic(PatternDatabase.open(args[2], N));
+        if (args.length > 3)
+            options.weight(Double.parseDouble(args[3]));
+        if (boards != null) {
+            for (long i = 0; i < boards.size(); i++) {
+                Solver solver = new Solver(boards.board(i), options);
+                String moves = solver.moves() + "";
+                if (solver.gap() > 0)
+                    moves += " (gap " + solver.gap() + ")";
+                StdOut.println(args[0] + "[" + i + "]: " + moves);
+            }
+            return;
+        }
+        Solver solver = new Solver(initial, options);
 
         // print solution to standard output
         if (!solver.isSolvable())
             StdOut.println("No solution possible");
         else {
-            StdOut.println("Minimum number of moves = " + solver.moves());
+            if (solver.gap() > 0)
+                StdOut.println("Number of moves = " + solver.moves() + " (at most "
+                               + solver.gap() + " more than the minimum)");
+            else
+                StdOut.println("Minimum number of moves = " + solver.moves());
             for (Board board : solver.solution())
                 StdOut.println(board);
         }
@@ -0,0 +1,195 @@
+/*
+ * Compilation:  javac-algs4 SolverOptions.java
+ * Execution:
+ * Dependencies: Heuristic.java, Heuristics.java, SolutionCache.java,
+ *               SolverStats.java
+ *
+ * Description: How Solver should search. Setters return the options so they
+ *              can be chained:
+ *              new Solver(board, new SolverOptions().algorithm(IDASTAR))
+ */
+
+import java.util.function.Consumer;
+
+public class SolverOptions {
+
+    /* Search algorithms.
+     * ASTAR    best-first search. Fastest, but keeps every generated state.
+     * IDASTAR  iterative-deepening A*: repeated depth-first searches with a
+     *          growing bound on moves + estimate, on a single board that is
+     *          changed and undone in place. Memory is proportional to the
+     *          solution length, at the cost of re-expanding states.
+     * HDASTAR  hash-distributed A* on threads() threads: each thread owns the
+     *          states that hash to it and they exchange generated states in
+     *          batches. For single hard boards on many cores.
+     * ARASTAR  anytime A*: weighted A* with weight(), then again with lower
+     *          weights, reusing the earlier work, until weight 1. With a
+     *          time or memory limit it returns the best solution found so
+     *          far when the limit is hit instead of failing (see
+     *          Solver.gap()).
+     * MM       bidirectional search from the start and the goal, meeting in
+     *          the middle. The search backward uses manhattan distance
+     *          whatever heuristic() is.
+     * EXTERNAL external-memory A*: buckets of states by moves and estimate
+     *          are written to sorted files in diskDirectory() once they take
+     *          more than diskBuffer() bytes, and duplicates are removed when
+     *          the files are merged. For boards whose search doesn't fit
+     *          in memory. */
+    public enum Algorithm { ASTAR, IDASTAR, HDASTAR, ARASTAR, MM, EXTERNAL }
+
+    private Heuristic heuristic = Heuristics.LINEAR_CONFLICT;
+    private Algorithm algorithm = Algorithm.ASTAR;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long timeLimit;
+    private long memoryLimit;
+    private double weight = 1.0;
+    private SolutionCache cache;
+    private String diskDirectory = System.getProperty("java.io.tmpdir");
+    private long diskBuffer = 64L << 20;
+    private Consumer<SolverStats> progress;
+    private long progressInterval = 1000;
+
+    /* Sets the heuristic. Defaults to linear conflict. */
+    public SolverOptions heuristic(Heuristic heuristic) {
+        if (heuristic == null)
+            throw new NullPointerException();
+        this.heuristic = heuristic;
+        return this;
+    }
+
+    /* Sets the search algorithm. Defaults to ASTAR. */
+    public SolverOptions algorithm(Algorithm algorithm) {
+        if (algorithm == null)
+            throw new NullPointerException();
+        this.algorithm = algorithm;
+        return this;
+    }
+
+    /* Sets the number of threads for HDASTAR. Defaults to the number of
+     * processors. */
+    public SolverOptions threads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Need at least one thread");
+        this.threads = threads;
+        return this;
+    }
+
+    /* Sets how many milliseconds a single solve may take before Solver
+     * gives up with a SearchLimitException. 0 (the default) means no
+     * limit. */
+    public SolverOptions timeLimit(long millis) {
+        if (millis < 0)
+            throw new IllegalArgumentException("Time limit must not be negative");
+        this.timeLimit = millis;
+        return this;
+    }
+
+    /* Sets roughly how many bytes the nodes of a single search may take
+     * before Solver gives up with a SearchLimitException. 0 (the default)
+     * means no limit. */
+    public SolverOptions memoryLimit(long bytes) {
+        if (bytes < 0)
+            throw new IllegalArgumentException("Memory limit must not be negative");
+        this.memoryLimit = bytes;
+        return this;
+    }
+
+    /* Sets the weight of the estimate for ASTAR, or the starting weight for
+     * ARASTAR. With weight w > 1, ASTAR finds a solution at most w times as
+     * long as the shortest, usually much faster. The weight used is w
+     * rounded down to a multiple of 1/64 (so the bound is never looser
+     * than w), capped at 64: 1.05 is searched with 67/64 = 1.046875. A
+     * weight above 1 but below 1 + 1/64 would round down to 1, so it is
+     * rejected. Defaults to 1. */
+    public SolverOptions weight(double weight) {
+        AStarSearch.weight(weight);  // throws if it can't be used
+        this.weight = weight;
+        return this;
+    }
+
+    /* Sets a cache of solutions to look boards up in before searching and
+     * to store shortest solutions in. null (the default) means no cache. */
+    public SolverOptions cache(SolutionCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /* Sets the directory EXTERNAL writes its files in. Each search makes
+     * its own subdirectory and deletes it when done. Defaults to the
+     * system's temporary directory. */
+    public SolverOptions diskDirectory(String directory) {
+        if (directory == null)
+            throw new NullPointerException();
+        this.diskDirectory = directory;
+        return this;
+    }
+
+    /* Sets how many bytes of states EXTERNAL buffers in memory before
+     * writing them to disk. Defaults to 64 MB. */
+    public SolverOptions diskBuffer(long bytes) {
+        if (bytes <= 0)
+            throw new IllegalArgumentException("Buffer must be positive");
+        this.diskBuffer = bytes;
+        return this;
+    }
+
+    /* Sets a listener to send the stats of a solve to every intervalMillis
+     * milliseconds while it runs, on the solving thread or one of its
+     * workers. Reports are only as frequent as the search checks its time
+     * limit, every few thousand nodes (for IDASTAR every 65536 nodes and
+     * whenever the bound is raised). null (the default) means no
+     * listener. Flight recorder progress events
+     * come at the same interval. */
+    public SolverOptions progress(Consumer<SolverStats> listener,
+                                  long intervalMillis) {
+        if (intervalMillis <= 0)
+            throw new IllegalArgumentException("Interval must be positive");
+        this.progress = listener;
+        this.progressInterval = intervalMillis;
+        return this;
+    }
+
+    public Heuristic heuristic() {
+        return heuristic;
+    }
+
+    public Algorithm algorithm() {
+        return algorithm;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    public long timeLimit() {
+        return timeLimit;
+    }
+
+    public long memoryLimit() {
+        return memoryLimit;
+    }
+
+    public double weight() {
+        return weight;
+    }
+
+    public SolutionCache cache() {
+        return cache;
+    }
+
+    public String diskDirectory() {
+        return diskDirectory;
+    }
+
+    public long diskBuffer() {
+        return diskBuffer;
+    }
+
+    public Consumer<SolverStats> progress() {
+        return progress;
+    }
+
+    public long progressInterval() {
+        return progressInterval;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Compilation:  javac-algs4 SolverStats.java
+ * Execution:
+ * Dependencies:
+ *
+ * Description: What a Solver did to solve its board (see Solver.stats()):
+ *              search nodes generated and expanded, generated states dropped
+ *              as duplicates of states already reached in as few moves, the
+ *              largest number of nodes waiting to be expanded at once,
+ *              heuristic evaluations (full or incremental), and wall clock
+ *              and CPU time. Counts are updated as the search runs, so a
+ *              progress listener (see SolverOptions.progress()) sees them
+ *              grow. What counts as a node waiting to be expanded depends on
+ *              the search: for IDA* it is the depth of the current path.
+ */
+
+public class SolverStats {
+
+    long generated;
+    long expanded;
+    long duplicates;
+    long peakFrontier;
+    long heuristicEvals;
+    long wallNanos;
+    long cpuNanos;
+
+    public long generated()      { return generated; }
+    public long expanded()       { return expanded; }
+    public long duplicates()     { return duplicates; }
+    public long peakFrontier()   { return peakFrontier; }
+    public long heuristicEvals() { return heuristicEvals; }
+    public long wallNanos()      { return wallNanos; }
+    public long cpuNanos()       { return cpuNanos; }
+
+    /* Records the current number of nodes waiting to be expanded. */
+    void frontier(long size) {
+        if (size > peakFrontier)
+            peakFrontier = size;
+    }
+
+    /* Adds counts kept separately, as the threads of a parallel search do. */
+    synchronized void add(long generated, long expanded, long duplicates,
+                          long heuristicEvals, long cpuNanos) {
+        this.generated += generated;
+        this.expanded += expanded;
+        this.duplicates += duplicates;
+        this.heuristicEvals += heuristicEvals;
+        this.cpuNanos += cpuNanos;
+    }
+
+    public String toString() {
+        return String.format("%d generated, %d expanded, %d duplicates, "
+                             + "peak frontier %d, %d heuristic evaluations, "
+                             + "%.2fms wall, %.2fms cpu",
+                             generated, expanded, duplicates, peakFrontier,
+                             heuristicEvals, wallNanos / 1e6, cpuNanos / 1e6);
+    }
+}
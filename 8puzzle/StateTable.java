@@ -0,0 +1,114 @@
+/*
+ * Compilation:  javac-algs4 StateTable.java
+ * Execution:
+ * Dependencies: Board.java
+ *
+ * Description: An open-addressing hash table of packed board states (see
+ *              Board.tileAt()), each with an int value. It serves both as a
+ *              closed set (add/contains) and as a map from states to search
+ *              node indices (get/put). Keys are stored back to back in a
+ *              single long[] and probed linearly, so lookups allocate
+ *              nothing. An all-zero first word marks an empty slot; it can
+ *              never be a real state since the first word always holds at
+ *              least two distinct tiles.
+ */
+
+public class StateTable {
+
+    private int words;    // longs per state
+    private int size;     // number of states in the table
+    private int mask;     // capacity - 1, capacity is a power of two
+    private long[] keys;  // states back to back, words longs each
+    private int[] values; // value of the state in each slot
+
+    /* Constructs an empty table for states with the given number of words. */
+    public StateTable(int words) {
+        this.words = words;
+        this.mask = 1023;
+        this.keys = new long[(mask + 1) * words];
+        this.values = new int[mask + 1];
+    }
+
+    /* Returns the number of states in the table. */
+    public int size() {
+        return size;
+    }
+
+    /* Returns true if the table holds the state starting at key[off]. */
+    public boolean contains(long[] key, int off) {
+        return slot(keys, mask, key, off) >= 0;
+    }
+
+    /* Adds the state starting at key[off] with value 0. Returns false if it
+     * was already present. */
+    public boolean add(long[] key, int off) {
+        if (contains(key, off))
+            return false;
+        put(key, off, 0);
+        return true;
+    }
+
+    /* Returns the value of the state starting at key[off], or -1 if the
+     * table doesn't hold it. */
+    public int get(long[] key, int off) {
+        int s = slot(keys, mask, key, off);
+        return s >= 0 ? values[s] : -1;
+    }
+
+    /* Sets the value of the state starting at key[off], adding the state if
+     * it isn't in the table yet. */
+    public void put(long[] key, int off, int value) {
+        int s = slot(keys, mask, key, off);
+        if (s < 0) {
+            if (2 * (size + 1) > mask + 1) {
+                resize();
+                s = slot(keys, mask, key, off);
+            }
+            s = ~s;
+            System.arraycopy(key, off, keys, s * words, words);
+            size++;
+        }
+        values[s] = value;
+    }
+
+    /* Returns the slot holding the key if present, otherwise the bitwise
+     * complement of the empty slot where it would go. */
+    private int slot(long[] table, int m, long[] key, int off) {
+        int i = Board.hash(key, off, words) & m;
+        while (true) {
+            int base = i * words;
+            if (table[base] == 0)
+                return ~i;
+            if (equal(table, base, key, off))
+                return i;
+            i = (i + 1) & m;
+        }
+    }
+
+    /* Returns true if words longs at a[i] and b[j] are equal. */
+    private boolean equal(long[] a, int i, long[] b, int j) {
+        for (int k = 0; k < words; k++) {
+            if (a[i + k] != b[j + k])
+                return false;
+        }
+        return true;
+    }
+
+    /* Doubles the capacity and rehashes every state. */
+    private void resize() {
+        int m = 2 * mask + 1;
+        long[] table = new long[(m + 1) * words];
+        int[] vals = new int[m + 1];
+        for (int i = 0; i <= mask; i++) {
+            int base = i * words;
+            if (keys[base] != 0) {
+                int s = ~slot(table, m, keys, base);
+                System.arraycopy(keys, base, table, s * words, words);
+                vals[s] = values[i];
+            }
+        }
+        keys = table;
+        values = vals;
+        mask = m;
+    }
+}
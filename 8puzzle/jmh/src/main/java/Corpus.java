@@ -0,0 +1,48 @@
+/*
+ * Compilation:  mvn package (from the top of the repository)
+ * Execution:
+ * Dependencies: Board.java
+ *
+ * Description: The fixed boards the benchmarks run on, kept as resources in
+ *              the puzzle text format, several boards per file. Each file
+ *              holds boards of one dimension whose shortest solutions all
+ *              have the same number of moves, named <N>x<N>-<moves>.txt:
+ *              8 3x3 boards each of 14, 22 and 28 moves and 8 4x4 boards
+ *              each of 30, 40 and 48 moves.
+ */
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+class Corpus {
+
+    /* Returns the tiles of the boards in the named corpus, e.g. "3x3-22". */
+    static int[][][] tiles(String name) {
+        InputStream in = Corpus.class.getResourceAsStream("/" + name + ".txt");
+        if (in == null)
+            throw new IllegalArgumentException("No corpus " + name);
+        List<int[][]> boards = new ArrayList<int[][]>();
+        try (Scanner s = new Scanner(in)) {
+            while (s.hasNextInt()) {
+                int N = s.nextInt();
+                int[][] tiles = new int[N][N];
+                for (int i = 0; i < N; i++)
+                    for (int j = 0; j < N; j++)
+                        tiles[i][j] = s.nextInt();
+                boards.add(tiles);
+            }
+        }
+        return boards.toArray(new int[0][][]);
+    }
+
+    /* Returns the boards in the named corpus. */
+    static Board[] boards(String name) {
+        int[][][] tiles = tiles(name);
+        Board[] boards = new Board[tiles.length];
+        for (int k = 0; k < tiles.length; k++)
+            boards[k] = new Board(tiles[k]);
+        return boards;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Compilation:  mvn package (from the top of the repository)
+ * Execution:
+ * Dependencies: Board.java, Solver.java, SolverOptions.java, Corpus.java,
+ *               bench/Workload.java
+ *
+ * Description: The benchmarked operations on Board and Solver, for the
+ *              benchmarks in package bench (see bench/Workload.java).
+ */
+
+import bench.Workload;
+import org.openjdk.jmh.infra.Blackhole;
+
+public class PuzzleWorkload implements Workload {
+
+    private String corpus;
+    private Board[] boards;
+    /* Equal boards built separately, so equals() compares every tile. */
+    private Board[] copies;
+    /* Moves in a shortest solution of every board. */
+    private int moves;
+
+    public PuzzleWorkload(String corpus) {
+        this.corpus = corpus;
+        boards = Corpus.boards(corpus);
+        copies = Corpus.boards(corpus);
+        moves = Integer.parseInt(corpus.substring(corpus.indexOf('-') + 1));
+    }
+
+    public int size() {
+        return boards.length;
+    }
+
+    public void neighbors(Blackhole bh) {
+        for (Board b : boards)
+            for (Board n : b.neighbors())
+                bh.consume(n);
+    }
+
+    public int manhattan() {
+        int sum = 0;
+        for (Board b : boards)
+            sum += b.manhattan();
+        return sum;
+    }
+
+    public int hamming() {
+        int sum = 0;
+        for (Board b : boards)
+            sum += b.hamming();
+        return sum;
+    }
+
+    public int equalsCopies() {
+        int same = 0;
+        for (int k = 0; k < boards.length; k++)
+            if (boards[k].equals(copies[k]))
+                same++;
+        return same;
+    }
+
+    public int hashCodes() {
+        int sum = 0;
+        for (Board b : boards)
+            sum += b.hashCode();
+        return sum;
+    }
+
+    public int solve(String algorithm) {
+        SolverOptions options = new SolverOptions().algorithm(
+            SolverOptions.Algorithm.valueOf(algorithm));
+        int total = 0;
+        for (Board b : boards) {
+            int m = new Solver(b, options).moves();
+            if (m != moves)
+                throw new IllegalStateException(corpus + ": " + m
+                                                + " moves, not " + moves);
+            total += m;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Compilation:  mvn package (from the top of the repository)
+ * Execution:    java -cp 8puzzle/jmh/target/benchmarks.jar bench.BenchmarkCompare
+ *                    base.csv new.csv [threshold percent]
+ *               e.g. java -jar 8puzzle/jmh/target/benchmarks.jar -rff base.csv
+ *                    (make a change, rebuild)
+ *                    java -jar 8puzzle/jmh/target/benchmarks.jar -rff new.csv
+ *                    java -cp 8puzzle/jmh/target/benchmarks.jar bench.BenchmarkCompare base.csv new.csv
+ * Dependencies: none
+ *
+ * Description: Compares two runs of the benchmarks from their CSV results:
+ *              for every benchmark and parameters in both, the score (time
+ *              or throughput) and the bytes allocated per operation, before
+ *              and after. A change is marked as a regression or an
+ *              improvement if it is more than the threshold (default 5%)
+ *              and bigger than the two runs' error bars together. Exits with
+ *              status 1 if there is any regression, so it can gate a build.
+ */
+
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BenchmarkCompare {
+
+    /* The one secondary metric compared besides the score. */
+    private static final String ALLOC = ":gc.alloc.rate.norm";
+
+    /* One row of a JMH CSV result. */
+    private static class Row {
+        private String mode;
+        private double score;
+        private double error;
+        private String unit;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, Row> base = read(args[0]);
+        Map<String, Row> next = read(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) / 100
+                                           : 0.05;
+        int regressions = 0;
+        System.out.printf("%-60s %14s %14s %8s%n", "benchmark", "base", "new",
+                          "change");
+        for (Map.Entry<String, Row> e : base.entrySet()) {
+            Row b = e.getValue();
+            Row n = next.get(e.getKey());
+            if (n == null || Double.isNaN(b.score) || Double.isNaN(n.score))
+                continue;
+            // allocation may go up from nothing
+            double change = b.score != 0 ? (n.score - b.score) / b.score
+                          : n.score != 0 ? Double.POSITIVE_INFINITY : 0;
+            // higher is better for throughput, lower for time and bytes
+            boolean worse = b.mode.equals("thrpt") && !e.getKey().contains(ALLOC)
+                            ? change < 0 : change > 0;
+            boolean significant = Math.abs(change) > threshold
+                                  && Math.abs(n.score - b.score)
+                                     > zero(b.error) + zero(n.error);
+            String mark = !significant ? "" : worse ? "  REGRESSION"
+                                                    : "  improved";
+            if (significant && worse)
+                regressions++;
+            System.out.printf("%-60s %14s %14s %+7.1f%%%s%n", e.getKey(),
+                              format(b), format(n), 100 * change, mark);
+        }
+        System.out.println(regressions + " regressions");
+        if (regressions > 0)
+            System.exit(1);
+    }
+
+    /* Returns the primary and allocation rows of a result file, keyed by
+     * benchmark and parameters. */
+    private static Map<String, Row> read(String name) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(name));
+        List<String> header = fields(lines.get(0));
+        Map<String, Row> rows = new LinkedHashMap<String, Row>();
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> f = fields(line);
+            String benchmark = f.get(0);
+            int colon = benchmark.indexOf(':');
+            if (colon >= 0 && !benchmark.endsWith(ALLOC))
+                continue;
+            StringBuilder key = new StringBuilder(benchmark);
+            String sep = " ";
+            for (int c = 7; c < f.size(); c++) {
+                if (f.get(c).isEmpty())
+                    continue;
+                key.append(sep)
+                   .append(header.get(c).substring("Param: ".length()))
+                   .append('=').append(f.get(c));
+                sep = ",";
+            }
+            Row r = new Row();
+            r.mode = f.get(1);
+            r.score = parse(f.get(4));
+            r.error = parse(f.get(5));
+            r.unit = f.get(6);
+            rows.put(key.toString(), r);
+        }
+        return rows;
+    }
+
+    /* Splits a CSV line into its fields, without the quotes. */
+    private static List<String> fields(String line) {
+        List<String> fields = new ArrayList<String>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"')
+                quoted = !quoted;
+            else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else
+                field.append(c);
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static double parse(String s) {
+        try {
+            return Double.parseDouble(s);
+        }
+        catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static double zero(double x) {
+        return Double.isNaN(x) ? 0 : x;
+    }
+
+    private static String format(Row r) {
+        return String.format("%.3f %s", r.score, r.unit);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Compilation:  mvn package (from the top of the repository)
+ * Execution:    java -jar 8puzzle/jmh/target/benchmarks.jar [JMH options]
+ *               e.g. java -jar 8puzzle/jmh/target/benchmarks.jar -rff base.csv
+ *                    java -jar 8puzzle/jmh/target/benchmarks.jar Board -f 1
+ * Dependencies: BoardBenchmark.java, SolverBenchmark.java
+ *
+ * Description: Runs the benchmarks with the usual JMH command line options,
+ *              always with the GC profiler (so every benchmark also reports
+ *              its allocation rate, gc.alloc.rate.norm being bytes allocated
+ *              per operation) and writing the results as CSV (unless -rf
+ *              says otherwise) to jmh-result.csv (unless -rff does), for
+ *              BenchmarkCompare.
+ */
+
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp()) {
+            cmd.showHelp();
+            return;
+        }
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cmd);
+        options.addProfiler(GCProfiler.class);
+        if (!cmd.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.CSV);
+        if (!cmd.getResult().hasValue())
+            options.result("jmh-result.csv");
+        Runner runner = new Runner(options.build());
+        if (cmd.shouldList())
+            runner.list();
+        else
+            runner.run();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Compilation:  mvn package (from the top of the repository)
+ * Execution:    java -jar 8puzzle/jmh/target/benchmarks.jar BoardBenchmark
+ * Dependencies: Workload.java
+ *
+ * Description: Micro-benchmarks of the Board operations the solvers and
+ *              clients lean on: neighbors(), manhattan(), hamming(), equals()
+ *              and hashCode(). Each operation runs on every board of one
+ *              corpus (the hardest 3x3 and 4x4 ones) and the scores are per
+ *              board.
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardBenchmark {
+
+    /* Boards in every corpus. */
+    private static final int BOARDS = 8;
+
+    @Param({ "3x3-28", "4x4-48" })
+    public String corpus;
+
+    private Workload work;
+
+    @Setup
+    public void setup() {
+        work = Workload.of(corpus);
+        if (work.size() != BOARDS)
+            throw new IllegalStateException(corpus + " has " + work.size()
+                                            + " boards, not " + BOARDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public void neighbors(Blackhole bh) {
+        work.neighbors(bh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public int manhattan() {
+        return work.manhattan();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public int hamming() {
+        return work.hamming();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public int equalsCopy() {
+        return work.equalsCopies();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public int hashCodes() {
+        return work.hashCodes();
+    }
+}
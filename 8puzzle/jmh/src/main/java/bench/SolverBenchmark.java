@@ -0,0 +1,63 @@
+/*
+ * Compilation:  mvn package (from the top of the repository)
+ * Execution:    java -jar 8puzzle/jmh/target/benchmarks.jar SolverBenchmark
+ * Dependencies: Workload.java
+ *
+ * Description: End-to-end solves of every board of a corpus, for each
+ *              corpus (3x3 and 4x4 boards graded by the length of their
+ *              shortest solutions) and search algorithm. The score is the
+ *              time per board. A solve that doesn't find the corpus's number
+ *              of moves fails the run, so a fast but wrong change can't pass
+ *              for an improvement.
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+    /* Boards in every corpus. */
+    private static final int BOARDS = 8;
+
+    @Param({ "3x3-14", "3x3-22", "3x3-28", "4x4-30", "4x4-40", "4x4-48" })
+    public String corpus;
+
+    @Param({ "ASTAR", "IDASTAR" })
+    public String algorithm;
+
+    private Workload work;
+
+    @Setup
+    public void setup() {
+        work = Workload.of(corpus);
+        if (work.size() != BOARDS)
+            throw new IllegalStateException(corpus + " has " + work.size()
+                                            + " boards, not " + BOARDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public int solve() {
+        return work.solve(algorithm);
+    }
+}
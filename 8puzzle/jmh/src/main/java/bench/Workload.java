@@ -0,0 +1,58 @@
+/*
+ * Compilation:  mvn package (from the top of the repository)
+ * Execution:
+ * Dependencies: PuzzleWorkload.java
+ *
+ * Description: What the benchmarks measure, on the boards of one corpus.
+ *              JMH only takes benchmarks in a named package, and code in a
+ *              named package can't use the default-package Board and Solver,
+ *              so the benchmarks call through this interface and
+ *              PuzzleWorkload, in the default package, implements it. There
+ *              is only ever one implementation, so the JIT compiles the
+ *              calls as direct ones.
+ */
+
+package bench;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+public interface Workload {
+
+    /* Returns the workload on the boards of the named corpus (see
+     * Corpus.java), e.g. "3x3-22". */
+    static Workload of(String corpus) {
+        try {
+            return (Workload) Class.forName("PuzzleWorkload")
+                                   .getDeclaredConstructor(String.class)
+                                   .newInstance(corpus);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load PuzzleWorkload", e);
+        }
+    }
+
+    /* Returns the number of boards. */
+    int size();
+
+    /* Consumes the neighbors of every board. */
+    void neighbors(Blackhole bh);
+
+    /* Returns the sum of the manhattan distances of the boards. */
+    int manhattan();
+
+    /* Returns the sum of the hamming distances of the boards. */
+    int hamming();
+
+    /* Compares every board with an equal board built separately and
+     * returns how many are equal. */
+    int equalsCopies();
+
+    /* Returns the sum of the hash codes of the boards. */
+    int hashCodes();
+
+    /* Solves every board with the named algorithm (see
+     * SolverOptions.Algorithm) and returns the total number of moves.
+     * Throws IllegalStateException if a solution doesn't have the corpus's
+     * number of moves. */
+    int solve(String algorithm);
+}
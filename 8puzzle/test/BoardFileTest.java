@@ -0,0 +1,82 @@
+/*
+ * Compilation:  mvn test (from the top of the repository)
+ * Execution:
+ * Dependencies: BoardFile.java, Board.java
+ *
+ * Description: Checks converting text boards to a board file: good text
+ *              reads back as the same boards, and bad text (a board split
+ *              between two inputs, a sign, a number too large, tiles that
+ *              aren't a permutation) is an IOException that leaves no
+ *              output file behind.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class BoardFileTest {
+
+    private static final String GOOD = "3\n 1 2 3\n 4 5 6\n 7 8 0\n"
+                                     + "3\n 0 1 3\n 4 2 5\n 7 8 6\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void convertsAcrossInputs() throws IOException {
+        String name = dir.resolve("boards.bin").toString();
+        long count = BoardFile.convert(streams(GOOD, "\n\t", GOOD), name);
+        assertEquals(4, count);
+        BoardFile file = new BoardFile(name);
+        assertEquals(3, file.dimension());
+        assertEquals(4, file.size());
+        int[][] second = {{0, 1, 3}, {4, 2, 5}, {7, 8, 6}};
+        assertEquals(new Board(second), file.board(1));
+        assertEquals(new Board(second), file.board(3));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "3\n 1 2 3\n 4 5 6\n 7 8 -0\n",            // sign
+        "3\n 1 2 3\n 4 5 6\n 7 8 0x\n",            // not a digit
+        "3\n 1 2 3\n 4 5 6\n 7 8 99999999999\n",   // overflows an int
+        "3\n 1 2 3\n 4 5 6\n 7 8 9\n",             // tile >= N^2
+        "3\n 1 2 3\n 4 5 6\n 7 8 8\n",             // tile twice
+        "3\n 1 2 3\n 4 5 6\n 7 8\n",               // input ends in a board
+        "1\n 0\n",                                  // dimension < 2
+    })
+    void rejectsBadText(String bad) {
+        Path out = dir.resolve("bad.bin");
+        assertThrows(IOException.class,
+                     () -> BoardFile.convert(streams(GOOD, bad), out.toString()));
+        assertFalse(Files.exists(out));
+    }
+
+    @Test
+    void rejectsBoardSplitBetweenInputs() {
+        Path out = dir.resolve("split.bin");
+        String[] halves = {GOOD + "3\n 1 2 3\n 4 5", " 6\n 7 8 0\n"};
+        assertThrows(IOException.class,
+                     () -> BoardFile.convert(streams(halves), out.toString()));
+        assertFalse(Files.exists(out));
+    }
+
+    private static InputStream[] streams(String... texts) {
+        InputStream[] ins = new InputStream[texts.length];
+        for (int i = 0; i < texts.length; i++)
+            ins[i] = new ByteArrayInputStream(
+                texts[i].getBytes(StandardCharsets.US_ASCII));
+        return ins;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Compilation:  mvn test (from the top of the repository)
+ * Execution:
+ * Dependencies: StateSpace.java, Heuristics.java, PatternDatabase.java
+ *
+ * Description: Checks every heuristic on every state of the 3x3 puzzle: it
+ *              never overestimates the distance found by breadth-first
+ *              search, and update() after every move agrees with
+ *              estimate() from scratch.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class HeuristicTest {
+
+    private static final int N = StateSpace.N;
+
+    static Stream<Arguments> heuristics() {
+        return Stream.of(
+            Arguments.of("hamming", Heuristics.HAMMING),
+            Arguments.of("manhattan", Heuristics.MANHATTAN),
+            Arguments.of("linear conflict", Heuristics.LINEAR_CONFLICT),
+            Arguments.of("walking distance", Heuristics.WALKING_DISTANCE),
+            Arguments.of("pattern database", StateSpace.patternDatabase()));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("heuristics")
+    void isAdmissible(String name, Heuristic h) {
+        for (int i = 0; i < StateSpace.size(); i++) {
+            Board b = StateSpace.board(i);
+            int estimate = h.estimate(b.packed(), N);
+            int distance = StateSpace.distance(b);
+            assertTrue(estimate <= distance, name + " says " + estimate
+                       + " for a board " + distance + " moves from the goal:\n" + b);
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("heuristics")
+    void updateMatchesEstimate(String name, Heuristic h) {
+        for (int i = 0; i < StateSpace.size(); i++) {
+            Board b = StateSpace.board(i);
+            long[] state = b.packed();
+            int blank = b.blankIndex();
+            int before = h.estimate(state, N);
+            for (int dir = Board.UP; dir <= Board.RIGHT; dir++) {
+                int to = Board.target(N, blank, dir);
+                if (to < 0)
+                    continue;
+                long[] next = new long[state.length];
+                int tile = Board.tileAt(state, N, to);
+                Board.slide(state, next, N, blank, to);
+                assertEquals(h.estimate(next, N),
+                             h.update(next, N, before, tile, to, blank),
+                             name + " after moving " + tile + " on\n" + b);
+            }
+        }
+    }
+
+    /* Linear conflict keeps its pile tops in an array past 64 columns.
+     * Rows of a wide board are shuffled, and the estimate is checked
+     * against manhattan distance plus 2 for every tile of a line outside
+     * the longest increasing run of final positions, found the slow way;
+     * then update() is checked over a walk of the empty block. */
+    @Test
+    void linearConflictOnWideBoards() {
+        SplittableRandom rng = new SplittableRandom(7);
+        for (int n : new int[] { 65, 130 }) {
+            int[][] blocks = new int[n][n];
+            for (int i = 0; i < n * n - 1; i++)
+                blocks[i / n][i % n] = i + 1;
+            for (int i = 0; i < n; i += 3) {
+                for (int j = (i == n - 1 ? n - 2 : n - 1); j > 0; j--) {
+                    int k = rng.nextInt(j + 1);
+                    int t = blocks[i][j];
+                    blocks[i][j] = blocks[i][k];
+                    blocks[i][k] = t;
+                }
+            }
+            Board b = new Board(blocks);
+            long[] state = b.packed();
+            int expected = b.manhattan();
+            for (int line = 0; line < n; line++)
+                expected += 2 * (slowConflicts(blocks, line, true)
+                                 + slowConflicts(blocks, line, false));
+            int h = Heuristics.LINEAR_CONFLICT.estimate(state, n);
+            assertEquals(expected, h, n + "x" + n);
+            int blank = b.blankIndex();
+            long[] next = new long[state.length];
+            for (int step = 0; step < 200; step++) {
+                int to = Board.target(n, blank, rng.nextInt(4));
+                if (to < 0)
+                    continue;
+                int tile = Board.tileAt(state, n, to);
+                Board.slide(state, next, n, blank, to);
+                h = Heuristics.LINEAR_CONFLICT.update(next, n, h, tile, to, blank);
+                assertEquals(Heuristics.LINEAR_CONFLICT.estimate(next, n), h,
+                             "after moving " + tile);
+                long[] t = state;
+                state = next;
+                next = t;
+                blank = to;
+            }
+        }
+    }
+
+    /* Returns the tiles of a row (column) that belong in it minus the
+     * longest strictly increasing subsequence of their final columns
+     * (rows), by quadratic dynamic programming. */
+    private static int slowConflicts(int[][] blocks, int line, boolean row) {
+        int n = blocks.length;
+        int[] goals = new int[n];
+        int count = 0;
+        for (int k = 0; k < n; k++) {
+            int tile = row ? blocks[line][k] : blocks[k][line];
+            if (tile == 0 || (row ? (tile - 1) / n : (tile - 1) % n) != line)
+                continue;
+            goals[count++] = row ? (tile - 1) % n : (tile - 1) / n;
+        }
+        int[] longest = new int[count];
+        int best = 0;
+        for (int i = 0; i < count; i++) {
+            longest[i] = 1;
+            for (int j = 0; j < i; j++)
+                if (goals[j] < goals[i])
+                    longest[i] = Math.max(longest[i], longest[j] + 1);
+            best = Math.max(best, longest[i]);
+        }
+        return count - best;
+    }
+
+    /* The pattern database takes the smallest entry over the regions the
+     * empty block can be in, so it isn't consistent: a single move can
+     * change it by more than 1. The searches that need consistency must
+     * cope with that (pathmax, or repeated rounds for ARA*). */
+    @Test
+    void patternDatabaseIsNotConsistent() {
+        Heuristic h = StateSpace.patternDatabase();
+        int largest = 0;
+        for (int i = 0; i < StateSpace.size(); i++) {
+            Board b = StateSpace.board(i);
+            int before = h.estimate(b.packed(), N);
+            for (Board n : b.neighbors())
+                largest = Math.max(largest,
+                                   Math.abs(h.estimate(n.packed(), N) - before));
+        }
+        assertTrue(largest > 1, "largest change in one move: " + largest);
+    }
+}
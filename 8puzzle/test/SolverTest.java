@@ -0,0 +1,266 @@
+/*
+ * Compilation:  mvn test (from the top of the repository)
+ * Execution:
+ * Dependencies: StateSpace.java, Solver.java, SolverOptions.java,
+ *               Heuristics.java, PatternDatabase.java
+ *
+ * Description: Solves 3x3 boards at every distance from the goal with every
+ *              search algorithm and heuristic and checks the solutions
+ *              against the distances found by breadth-first search: each is
+ *              a real solution, and a shortest one unless the search says it
+ *              may not be (weighted A*).
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class SolverTest {
+
+    /* Two boards at every distance from 0 to 31. */
+    private static final List<Board> BOARDS = StateSpace.sample(2, 42);
+
+    @TempDir
+    static Path disk;
+
+    /* The algorithms checked with every heuristic. */
+    private static final SolverOptions.Algorithm[] ALGORITHMS = {
+        SolverOptions.Algorithm.ASTAR,
+        SolverOptions.Algorithm.IDASTAR,
+        SolverOptions.Algorithm.HDASTAR,
+        SolverOptions.Algorithm.ARASTAR,
+        SolverOptions.Algorithm.MM,
+        SolverOptions.Algorithm.EXTERNAL,
+    };
+
+    static Stream<Arguments> searches() {
+        List<Arguments> searches = new ArrayList<Arguments>();
+        for (SolverOptions.Algorithm a : ALGORITHMS) {
+            searches.add(Arguments.of(a, "manhattan", Heuristics.MANHATTAN));
+            searches.add(Arguments.of(a, "linear conflict",
+                                      Heuristics.LINEAR_CONFLICT));
+            searches.add(Arguments.of(a, "walking distance",
+                                      Heuristics.WALKING_DISTANCE));
+            searches.add(Arguments.of(a, "pattern database",
+                                      StateSpace.patternDatabase()));
+        }
+        return searches.stream();
+    }
+
+    @ParameterizedTest(name = "{0} with {1}")
+    @MethodSource("searches")
+    void findsShortestSolutions(SolverOptions.Algorithm algorithm, String name,
+                                Heuristic h) {
+        SolverOptions options = new SolverOptions().algorithm(algorithm)
+                                                   .heuristic(h)
+                                                   .threads(2)
+                                                   .diskDirectory(disk.toString());
+        if (algorithm == SolverOptions.Algorithm.ARASTAR)
+            options.weight(3);
+        for (Board b : BOARDS) {
+            Solver solver = new Solver(b, options);
+            int distance = StateSpace.distance(b);
+            assertEquals(distance, solver.moves(), "moves for\n" + b);
+            assertEquals(distance, solver.lowerBound(), "lower bound for\n" + b);
+            assertSolves(b, solver);
+        }
+    }
+
+    /* The pattern database isn't consistent, so the first round at weight 1
+     * can end with a node in INCONS that leads to a shorter solution. */
+    @Test
+    void anytimeRepeatsRoundsAtWeightOne() {
+        Board b = new Board(new int[][] { { 8, 0, 4 }, { 1, 5, 3 }, { 7, 6, 2 } });
+        for (int w = 1; w <= 3; w++) {
+            SolverOptions options = new SolverOptions()
+                .algorithm(SolverOptions.Algorithm.ARASTAR)
+                .heuristic(StateSpace.patternDatabase())
+                .weight(w);
+            Solver solver = new Solver(b, options);
+            assertEquals(StateSpace.distance(b), solver.moves(), "weight " + w);
+            assertEquals(0, solver.gap(), "weight " + w);
+        }
+    }
+
+    /* External A* writing every bucket to disk after a few hundred states,
+     * with the pattern database, whose estimates need pathmax. */
+    @Test
+    void externalSpillsToDisk() {
+        SolverOptions options = new SolverOptions()
+            .algorithm(SolverOptions.Algorithm.EXTERNAL)
+            .heuristic(StateSpace.patternDatabase())
+            .diskDirectory(disk.toString())
+            .diskBuffer(8192);
+        for (Board b : BOARDS) {
+            Solver solver = new Solver(b, options);
+            assertEquals(StateSpace.distance(b), solver.moves(), "moves for\n" + b);
+            assertSolves(b, solver);
+        }
+    }
+
+    /* A state is expanded again only in fewer moves, so at most once for
+     * each distance of its parity from its fewest moves to the solution's.
+     * The heuristic, manhattan distance on half the states and 0 on the
+     * rest, is admissible but far from consistent, so pathmax puts one
+     * state in buckets of several h. Every update() is for a child of an
+     * expanded state, which gives the expansions of each state. */
+    @Test
+    void externalExpandsAgainOnlyInFewerMoves() {
+        HashMap<Long, Integer> children = new HashMap<Long, Integer>();
+        Heuristic halfManhattan = new Heuristic() {
+            public int estimate(long[] state, int N) {
+                long mix = state[0] * 0x9E3779B97F4A7C15L;
+                return Long.bitCount(mix) % 2 == 0 ? Board.manhattan(state, N) : 0;
+            }
+
+            public int update(long[] state, int N, int h, int tile, int from,
+                              int to) {
+                long[] parent = state.clone();
+                Board.slide(parent, parent, N, from, to);
+                children.merge(parent[0], 1, Integer::sum);
+                return estimate(state, N);
+            }
+        };
+        SolverOptions options = new SolverOptions()
+            .algorithm(SolverOptions.Algorithm.EXTERNAL)
+            .heuristic(halfManhattan)
+            .diskDirectory(disk.toString())
+            .diskBuffer(8192);
+        for (Board b : BOARDS) {
+            int distance = StateSpace.distance(b);
+            if (distance < 28)
+                continue;
+            children.clear();
+            Solver solver = new Solver(b, options);
+            assertEquals(distance, solver.moves(), "moves for\n" + b);
+            HashMap<Long, Integer> moves = new HashMap<Long, Integer>();
+            HashMap<Long, Integer> degree = new HashMap<Long, Integer>();
+            ArrayDeque<Board> queue = new ArrayDeque<Board>();
+            moves.put(b.packed()[0], 0);
+            queue.add(b);
+            while (!queue.isEmpty()) {
+                Board x = queue.remove();
+                int d = 0;
+                for (Board y : x.neighbors()) {
+                    d++;
+                    if (moves.putIfAbsent(y.packed()[0], moves.get(x.packed()[0]) + 1) == null)
+                        queue.add(y);
+                }
+                degree.put(x.packed()[0], d);
+            }
+            for (Map.Entry<Long, Integer> e : children.entrySet()) {
+                long state = e.getKey();
+                // each expansion but the start's skips the state it came from
+                int expansions = e.getValue() / (degree.get(state) - 1);
+                int fewest = moves.get(state);
+                assertTrue(expansions <= (distance - fewest) / 2 + 1,
+                           expansions + " expansions of a state " + fewest
+                           + " moves from\n" + b);
+            }
+        }
+    }
+
+    @Test
+    void hammingFindsShortestSolutions() {
+        // Too weak for the hardest boards in reasonable time, so only A*.
+        for (Board b : BOARDS) {
+            Solver solver = new Solver(b, Heuristics.HAMMING);
+            assertEquals(StateSpace.distance(b), solver.moves(), "moves for\n" + b);
+        }
+    }
+
+    @ParameterizedTest(name = "weight {0}")
+    @ValueSource(doubles = { 1.05, 1.5, 2 })
+    void weightedSolutionsAreWithinTheWeight(double weight) {
+        SolverOptions options = new SolverOptions().weight(weight);
+        for (Board b : BOARDS) {
+            Solver solver = new Solver(b, options);
+            int distance = StateSpace.distance(b);
+            assertTrue(solver.moves() <= weight * distance, "moves for\n" + b);
+            assertTrue(solver.lowerBound() <= distance, "lower bound for\n" + b);
+            assertEquals(solver.moves() - solver.lowerBound(), solver.gap());
+            assertSolves(b, solver);
+        }
+    }
+
+    /* The default heuristic, linear conflict, works past 64 columns. */
+    @Test
+    void solvesWideBoardsByDefault() {
+        int n = 65;
+        int[][] blocks = new int[n][n];
+        for (int i = 0; i < n * n - 1; i++)
+            blocks[i / n][i % n] = i + 1;
+        // move the empty block left 3 and up 2
+        int r = n - 1, c = n - 1;
+        int[][] steps = { { 0, -1 }, { 0, -1 }, { 0, -1 }, { -1, 0 }, { -1, 0 } };
+        for (int[] d : steps) {
+            blocks[r][c] = blocks[r + d[0]][c + d[1]];
+            r += d[0];
+            c += d[1];
+            blocks[r][c] = 0;
+        }
+        Board b = new Board(blocks);
+        Solver solver = new Solver(b);
+        assertEquals(5, solver.moves());
+        assertSolves(b, solver);
+    }
+
+    /* A weight that would round down to 1 is an error, not plain A*. */
+    @Test
+    void weightsJustAboveOneAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> new SolverOptions().weight(1.01));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new SolverOptions().weight(0.5));
+        new SolverOptions().weight(1).weight(1.0 + 1.0 / 64);
+    }
+
+    @Test
+    void unsolvableBoards() {
+        for (Board b : BOARDS) {
+            Solver solver = new Solver(b.twin());
+            assertFalse(solver.isSolvable());
+            assertEquals(-1, solver.moves());
+            assertEquals(null, solver.solution());
+        }
+    }
+
+    /* Checks that the solution starts at b, makes one move at a time and
+     * ends at the goal. */
+    private static void assertSolves(Board b, Solver solver) {
+        Board last = null;
+        int boards = 0;
+        for (Board next : solver.solution()) {
+            if (last == null)
+                assertEquals(b, next);
+            else
+                assertTrue(isNeighbor(last, next), "not a move:\n" + last + next);
+            last = next;
+            boards++;
+        }
+        assertTrue(last.isGoal(), "ends at\n" + last);
+        assertEquals(solver.moves() + 1, boards);
+    }
+
+    private static boolean isNeighbor(Board a, Board b) {
+        for (Board n : a.neighbors())
+            if (n.equals(b))
+                return true;
+        return false;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Compilation:  mvn test (from the top of the repository)
+ * Execution:
+ * Dependencies: Board.java, PatternDatabase.java, PatternDatabaseBuilder.java
+ *
+ * Description: The whole 3x3 puzzle for the tests: every state reachable from
+ *              the goal (the solvable half of 9!, 181,440 states) with its
+ *              distance from the goal, found once by breadth-first search,
+ *              and the default 4-4 pattern database, built once into a
+ *              temporary directory.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+
+final class StateSpace {
+
+    static final int N = 3;
+    static final int STATES = 181440;
+
+    /* Packed states (one word for 3x3) and empty block indices in order of
+     * distance, and the distance of every state. */
+    private static long[] states;
+    private static int[] blanks;
+    private static HashMap<Long, Integer> distance;
+    private static PatternDatabase pdb;
+
+    private StateSpace() { }
+
+    /* Returns the number of states. */
+    static int size() {
+        build();
+        return states.length;
+    }
+
+    /* Returns the i-th state, in order of distance from the goal. */
+    static Board board(int i) {
+        build();
+        return new Board(new long[] { states[i] }, N, blanks[i]);
+    }
+
+    /* Returns the fewest moves that solve a 3x3 board, -1 if it can't be
+     * solved. */
+    static int distance(Board board) {
+        build();
+        Integer d = distance.get(board.packed()[0]);
+        return d == null ? -1 : d;
+    }
+
+    /* Returns count boards at each distance from 0 to the largest, picked
+     * at random from the given seed. */
+    static List<Board> sample(int count, long seed) {
+        build();
+        SplittableRandom rng = new SplittableRandom(seed);
+        List<Board> sample = new ArrayList<Board>();
+        int lo = 0;
+        while (lo < states.length) {
+            int d = distance.get(states[lo]);
+            int hi = lo;
+            while (hi < states.length && distance.get(states[hi]) == d)
+                hi++;
+            for (int k = 0; k < count; k++)
+                sample.add(board(lo + rng.nextInt(hi - lo)));
+            lo = hi;
+        }
+        return sample;
+    }
+
+    /* Returns the default 4-4 pattern database for 3x3 boards. */
+    static synchronized PatternDatabase patternDatabase() {
+        if (pdb != null)
+            return pdb;
+        try {
+            File dir = Files.createTempDirectory("pdb").toFile();
+            dir.deleteOnExit();
+            for (int[] pattern : PatternDatabaseBuilder.defaultPatterns(N)) {
+                byte[] table = new PatternDatabaseBuilder(N, pattern).build(1);
+                File file = new File(dir, PatternDatabaseBuilder.fileName(N, pattern));
+                PatternDatabaseBuilder.write(file, N, pattern, table);
+                file.deleteOnExit();
+            }
+            pdb = PatternDatabase.open(dir.getPath(), N);
+            return pdb;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* Breadth-first search from the goal, unless already done. */
+    private static synchronized void build() {
+        if (states != null)
+            return;
+        long[] s = new long[STATES];
+        int[] b = new int[STATES];
+        HashMap<Long, Integer> dist = new HashMap<Long, Integer>();
+        s[0] = Board.goal(N)[0];
+        b[0] = N * N - 1;
+        dist.put(s[0], 0);
+        int size = 1;
+        long[] next = new long[1];
+        for (int head = 0; head < size; head++) {
+            int d = dist.get(s[head]);
+            for (int dir = Board.UP; dir <= Board.RIGHT; dir++) {
+                int to = Board.target(N, b[head], dir);
+                if (to < 0)
+                    continue;
+                Board.slide(new long[] { s[head] }, next, N, b[head], to);
+                if (dist.putIfAbsent(next[0], d + 1) == null) {
+                    s[size] = next[0];
+                    b[size] = to;
+                    size++;
+                }
+            }
+        }
+        if (size != STATES)
+            throw new IllegalStateException(size + " states, not " + STATES);
+        blanks = b;
+        distance = dist;
+        states = s;
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Compilation:  javac-algs4 HoshenKopelman.java
+ * Execution:    java-algs4 HoshenKopelman N p [-s seed]
+ *               java-algs4 HoshenKopelman N < rows.txt
+ *               e.g. java-algs4 HoshenKopelman 100000 0.5927 -s 42
+ * Dependencies: none
+ *
+ * Description: Hoshen-Kopelman cluster labelling of a grid N sites wide fed
+ *              one row at a time, in O(N) memory however many rows there
+ *              are: whether some cluster spans from the first row to the
+ *              last, and how many clusters there are of each size.
+ *              The union-find has slots for just two rows, the last one
+ *              added and the one being added, with entries as in
+ *              LargePercolation.java: 0 for a blocked site, parent plus 1,
+ *              or for a root minus its set's size times 2 plus a bit set if
+ *              it holds a site in the first row. After each row, its sites
+ *              are moved into the first N slots, each cluster's root going
+ *              to its leftmost site, and a cluster with no site in it is
+ *              finished and counted in the histogram.
+ *              Distinct cluster sizes add up to at most the number of sites,
+ *              so there are fewer than 1.5 N of them for N rows, and the
+ *              histogram is O(N) as well: an array for sizes up to N and a
+ *              map for the rest.
+ *              main either draws the rows of an NxN grid with each site open
+ *              with probability p, or reads rows of N characters, 1 for open
+ *              and 0 for blocked, from standard input.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+public class HoshenKopelman {
+
+    private static final long TOP = 1;
+
+    private int N;
+    private long rows;
+    /* Slots 0 to N - 1 are the last row added, N to 2N - 1 the one being
+     * added. */
+    private long[] entry;
+    /* The last row, moved to its new slots. */
+    private long[] moved;
+    /* For a root slot, the new slot of its cluster, or -1. */
+    private int[] mapped;
+    private boolean finished;
+    private boolean percolates;
+    /* small[s] is the number of clusters of size s, up to N. */
+    private long[] small;
+    private TreeMap<Long, Long> large = new TreeMap<Long, Long>();
+    private long clusters;
+    private long largest;
+
+    /*
+     * Constructor. Starts labelling a grid of the given width.
+     * Input N: The number of sites in a row.
+     */
+    public HoshenKopelman(int N) {
+        if (N <= 0) {
+            throw new IllegalArgumentException("Row length must be positive.");
+        }
+        if (N > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Row length must be less than 2^30.");
+        }
+        this.N = N;
+        entry = new long[2 * N];
+        moved = new long[N];
+        mapped = new int[2 * N];
+        small = new long[N + 1];
+    }
+
+    /*
+     * Adds the next row.
+     * Input open: Bit j (of open[j / 64]) is set if the site in column j,
+     * from 0, is open.
+     */
+    public void addRow(long[] open) {
+        if (finished) {
+            throw new IllegalStateException("No rows can be added after finish()");
+        }
+        if (open.length < (N + 63) >>> 6) {
+            throw new IllegalArgumentException("A row must have N bits");
+        }
+        long top = rows == 0 ? TOP : 0;
+        for (int j = 0; j < N; j++) {
+            if ((open[j >>> 6] & (1L << j)) == 0)
+                continue;
+            int s = N + j;
+            entry[s] = -(2 | top);
+            int root = s;
+            if (j > 0 && entry[s - 1] != 0)
+                root = union(root, s - 1);
+            if (entry[j] != 0)
+                union(root, j);
+        }
+        advance();
+        rows++;
+    }
+
+    /*
+     * Finishes the grid: the last row added is the bottom row.
+     */
+    public void finish() {
+        if (finished)
+            return;
+        for (int j = 0; j < N; j++) {
+            if (entry[j] < 0) {
+                count(entry[j]);
+                if ((-entry[j] & TOP) != 0)
+                    percolates = true;
+            }
+        }
+        finished = true;
+    }
+
+    /*
+     * Returns whether or not some cluster holds a site in both the first and
+     * the last row.
+     * Output: Whether or not the grid percolates.
+     */
+    public boolean percolates() {
+        checkFinished();
+        return percolates;
+    }
+
+    /*
+     * Returns the number of clusters.
+     */
+    public long clusters() {
+        checkFinished();
+        return clusters;
+    }
+
+    /*
+     * Returns the size of the largest cluster, 0 if there are none.
+     */
+    public long largest() {
+        checkFinished();
+        return largest;
+    }
+
+    /*
+     * Returns the number of clusters of each size, by size.
+     */
+    public SortedMap<Long, Long> histogram() {
+        checkFinished();
+        TreeMap<Long, Long> h = new TreeMap<Long, Long>();
+        for (int s = 1; s <= N; s++)
+            if (small[s] > 0)
+                h.put((long) s, small[s]);
+        h.putAll(large);
+        return Collections.unmodifiableSortedMap(h);
+    }
+
+    /*
+     * Main method. Labels an NxN grid with sites open with probability p,
+     * or the rows read from standard input, and prints whether it
+     * percolates and its cluster sizes in ranges of powers of 2.
+     * Input args: N [p [-s seed]]
+     */
+    public static void main(String[] args) {
+        int N = Integer.parseInt(args[0]);
+        HoshenKopelman hk = new HoshenKopelman(N);
+        long[] row = new long[(N + 63) >>> 6];
+        Stopwatch sw = new Stopwatch();
+        if (args.length > 1) {
+            double p = Double.parseDouble(args[1]);
+            long seed = System.nanoTime();
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].equals("-s"))
+                    seed = Long.parseLong(args[++i]);
+                else
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+            SplittableRandom rng = new SplittableRandom(seed);
+            for (int i = 0; i < N; i++) {
+                Arrays.fill(row, 0);
+                for (int j = 0; j < N; j++)
+                    if (rng.nextDouble() < p)
+                        row[j >>> 6] |= 1L << j;
+                hk.addRow(row);
+            }
+        }
+        else {
+            while (StdIn.hasNextLine()) {
+                String line = StdIn.readLine().trim();
+                if (line.isEmpty())
+                    continue;
+                if (line.length() != N)
+                    throw new IllegalArgumentException("Rows must have " + N
+                                                       + " sites");
+                Arrays.fill(row, 0);
+                for (int j = 0; j < N; j++)
+                    if (line.charAt(j) == '1')
+                        row[j >>> 6] |= 1L << j;
+                hk.addRow(row);
+            }
+        }
+        hk.finish();
+        double elapsedTime = sw.elapsedTime();
+        StdOut.printf("percolates              = %b\n", hk.percolates());
+        StdOut.printf("clusters                = %d\n", hk.clusters());
+        StdOut.printf("largest                 = %d\n", hk.largest());
+        long[] ranges = new long[64];
+        for (Map.Entry<Long, Long> e : hk.histogram().entrySet())
+            ranges[63 - Long.numberOfLeadingZeros(e.getKey())] += e.getValue();
+        for (int k = 0; k < 64; k++)
+            if (ranges[k] > 0)
+                StdOut.printf("%12d - %-12d %d\n", 1L << k, (1L << k << 1) - 1,
+                              ranges[k]);
+        StdOut.printf("Elapsed Time            = %fs\n", elapsedTime);
+    }
+
+    /* Helper functions */
+
+    /*
+     * Moves the row just added into the first N slots and counts the
+     * clusters that didn't reach it.
+     */
+    private void advance() {
+        Arrays.fill(mapped, -1);
+        for (int j = 0; j < N; j++) {
+            int s = N + j;
+            if (entry[s] == 0) {
+                moved[j] = 0;
+                continue;
+            }
+            int r = find(s);
+            if (mapped[r] < 0) {
+                mapped[r] = j;
+                moved[j] = entry[r];
+            }
+            else
+                moved[j] = mapped[r] + 1;
+        }
+        for (int j = 0; j < N; j++)
+            if (entry[j] < 0 && mapped[j] < 0)
+                count(entry[j]);
+        System.arraycopy(moved, 0, entry, 0, N);
+        Arrays.fill(entry, N, 2 * N, 0);
+    }
+
+    /*
+     * Counts a finished cluster, given its root's entry.
+     */
+    private void count(long rootEntry) {
+        long size = -rootEntry >>> 1;
+        if (size <= N)
+            small[(int) size]++;
+        else
+            large.merge(size, 1L, Long::sum);
+        clusters++;
+        largest = Math.max(largest, size);
+    }
+
+    /*
+     * Returns the root of the set holding open slot p, pointing every other
+     * slot on the way at its grandparent.
+     */
+    private int find(int p) {
+        long q;
+        while ((q = entry[p]) > 0) {
+            long r = entry[(int) q - 1];
+            if (r < 0)
+                return (int) q - 1;
+            entry[p] = r;
+            p = (int) r - 1;
+        }
+        return p;
+    }
+
+    /*
+     * Joins the sets holding open slots p and q, the smaller under the
+     * larger, and gives the new root the top bits of both. Returns the new
+     * root.
+     */
+    private int union(int p, int q) {
+        int rp = find(p);
+        int rq = find(q);
+        if (rp == rq)
+            return rp;
+        long ep = -entry[rp];
+        long eq = -entry[rq];
+        if (ep < eq) {  // the sizes are in the high bits
+            int t = rp;
+            rp = rq;
+            rq = t;
+        }
+        long total = (ep >>> 1) + (eq >>> 1);
+        entry[rp] = -(total << 1 | (ep | eq) & TOP);
+        entry[rq] = rp + 1;
+        return rp;
+    }
+
+    private void checkFinished() {
+        if (!finished) {
+            throw new IllegalStateException("Call finish() first");
+        }
+    }
+}
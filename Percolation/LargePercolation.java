@@ -0,0 +1,281 @@
+/*
+ * Compilation:  javac-algs4 LargePercolation.java
+ * Execution:    java-algs4 LargePercolation N [-s seed] [-f file]
+ *               e.g. java-algs4 LargePercolation 100000 -f /scratch/grid
+ * Dependencies: SiteOrder.java
+ *
+ * Description: Percolation on NxN grids too big for the heap: sites are
+ *              numbered row-major from 0 in a long, and the union-find is
+ *              one long per site in a memory-mapped file, so the grid is
+ *              limited by disk rather than by memory, and the operating
+ *              system pages in the parts of it in use. A site's neighbors
+ *              are in its own row and the rows just above and below it, so
+ *              opening it touches at most three rows' worth of pages.
+ *              A site's entry is 0 if it's blocked, its parent plus 1 if it's
+ *              open and not a root, and for a root minus its set's size
+ *              times 4 plus its top (1) and bottom (2) bits, as in
+ *              Percolation.java. Blocked sites are all zeros, so the file
+ *              needs no initializing pass and, on most file systems, no
+ *              disk for the parts of the grid never opened.
+ *              The file holds 8N^2 bytes and is kept if it's named,
+ *              otherwise it's a temporary file deleted on exit. Sites opened
+ *              in random order dirty pages all over it, so a grid that fits
+ *              in memory runs about as fast as Percolation from a file in
+ *              tmpfs (e.g. /dev/shm) but several times slower from disk.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.SplittableRandom;
+
+public class LargePercolation {
+
+    /* Sites per mapped segment, 1GB of entries, since one mapping is at most
+     * 2GB. */
+    private static final int SEGMENT_BITS = 27;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private static final long TOP = 1;
+    private static final long BOTTOM = 2;
+
+    private long size;
+    private long sites;
+    private LongBuffer[] segments;
+    private boolean percolates;
+
+    /*
+     * Constructor. Initializes an NxN grid of blocked cells in a temporary
+     * file.
+     * Input N: The size of the grid.
+     */
+    public LargePercolation(long N) throws IOException {
+        this(N, null);
+    }
+
+    /*
+     * Constructor. Initializes an NxN grid of blocked cells in the file with
+     * the given name, replacing what was in it.
+     * Input N: The size of the grid.
+     * Input name: The name of the file, or null for a temporary file.
+     */
+    public LargePercolation(long N, String name) throws IOException {
+        if (N <= 0) {
+            throw new IllegalArgumentException("Grid size must be positive.");
+        }
+        if (N >= 1 << 29) {
+            throw new IllegalArgumentException("Grid size must be less than 2^29.");
+        }
+
+        size = N;
+        sites = N * N;
+        File file;
+        if (name == null) {
+            file = File.createTempFile("percolation", ".sites");
+            file.deleteOnExit();
+        }
+        else
+            file = new File(name);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            // Truncating first zeroes every entry.
+            raf.setLength(0);
+            raf.setLength(8 * sites);
+            segments = new LongBuffer[(int) ((sites + SEGMENT_MASK) >>> SEGMENT_BITS)];
+            for (int s = 0; s < segments.length; s++) {
+                long first = (long) s << SEGMENT_BITS;
+                long count = Math.min(1L << SEGMENT_BITS, sites - first);
+                segments[s] = raf.getChannel()
+                                 .map(FileChannel.MapMode.READ_WRITE,
+                                      8 * first, 8 * count)
+                                 .order(ByteOrder.nativeOrder())
+                                 .asLongBuffer();
+            }
+        }
+        finally {
+            // The mappings stay valid after the file is closed.
+            raf.close();
+        }
+    }
+
+    /*
+     * Opens the cell at row i, column j.
+     * Input i: The row of the cell (from 1 to N).
+     * Input j: The column of the cell (from 1 to N).
+     */
+    public void open(long i, long j) {
+        open(site(i, j));
+    }
+
+    /*
+     * Returns whether or not the cell at (i, j) is open.
+     * Input i: The row of the cell (from 1 to N).
+     * Input j: The column of the cell (from 1 to N).
+     * Output: Whether or not the cell is open.
+     */
+    public boolean isOpen(long i, long j) {
+        return isOpen(site(i, j));
+    }
+
+    /*
+     * Returns whether or not the cell at (i, j) is open and joined to an
+     * open cell in the top row.
+     * Input i: The row of the cell (from 1 to N).
+     * Input j: The column of the cell (from 1 to N).
+     * Output: Whether or not the system percolates to the input cell.
+     */
+    public boolean isFull(long i, long j) {
+        return isFull(site(i, j));
+    }
+
+    /*
+     * Returns whether or not some open cell in the bottom row is joined to
+     * an open cell in the top row.
+     * Output: Whether or not the system percolates.
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /*
+     * Opens site p (row-major from 0) and joins it to its open neighbors.
+     * p is not checked.
+     */
+    void open(long p) {
+        if (isOpen(p))
+            return;
+        long bits = (p < size ? TOP : 0) | (p >= sites - size ? BOTTOM : 0);
+        put(p, -(4 | bits));
+        long root = p;
+        long col = p % size;
+        if (col > 0 && isOpen(p - 1))
+            root = union(root, p - 1);
+        if (col < size - 1 && isOpen(p + 1))
+            root = union(root, p + 1);
+        if (p >= size && isOpen(p - size))
+            root = union(root, p - size);
+        if (p < sites - size && isOpen(p + size))
+            root = union(root, p + size);
+        if ((-get(root) & (TOP | BOTTOM)) == (TOP | BOTTOM))
+            percolates = true;
+    }
+
+    /*
+     * Returns whether site p (row-major from 0) is open. p is not checked.
+     */
+    boolean isOpen(long p) {
+        return get(p) != 0;
+    }
+
+    /*
+     * Returns whether site p (row-major from 0) is joined to the top. p is
+     * not checked.
+     */
+    boolean isFull(long p) {
+        return isOpen(p) && (-get(find(p)) & TOP) != 0;
+    }
+
+    /*
+     * Returns the number of open sites in the set holding site p (row-major
+     * from 0), 0 for a blocked site. p is not checked.
+     */
+    long clusterSize(long p) {
+        return isOpen(p) ? -get(find(p)) >>> 2 : 0;
+    }
+
+    /*
+     * Main method. Opens the sites of an NxN grid in a random order (a
+     * SiteOrder.Cipher, which needs no memory per site) until it percolates
+     * and prints the fraction of sites open.
+     * Input args: N [-s seed] [-f file]
+     */
+    public static void main(String[] args) throws IOException {
+        long N = Long.parseLong(args[0]);
+        long seed = System.nanoTime();
+        String name = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-s"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("-f"))
+                name = args[++i];
+            else
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+        Stopwatch sw = new Stopwatch();
+        LargePercolation perc = new LargePercolation(N, name);
+        long sites = N * N;
+        SiteOrder.Cipher order = new SiteOrder.Cipher(sites,
+                                                      new SplittableRandom(seed));
+        long counts = 0;
+        while (!perc.percolates()) {
+            // sites from the order are in range and never repeat
+            perc.open(order.nextLong());
+            counts++;
+        }
+        double elapsedTime = sw.elapsedTime();
+        StdOut.printf("fraction open           = %f\n", (double) counts / sites);
+        StdOut.printf("Elapsed Time            = %fs\n", elapsedTime);
+    }
+
+    /* Helper functions */
+
+    /*
+     * Returns the row-major index from 0 of the cell at (i, j), both from 1.
+     */
+    private long site(long i, long j) {
+        if (i < 1 || i > size || j < 1 || j > size) {
+            throw new IndexOutOfBoundsException("Indices must be from 1 to N");
+        }
+        return (i - 1) * size + (j - 1);
+    }
+
+    /*
+     * Returns the root of the set holding open site p, pointing every other
+     * site on the way at its grandparent.
+     */
+    private long find(long p) {
+        long q;
+        while ((q = get(p)) > 0) {
+            long r = get(q - 1);
+            if (r < 0)
+                return q - 1;
+            put(p, r);
+            p = r - 1;
+        }
+        return p;
+    }
+
+    /*
+     * Joins the sets holding open sites p and q, the smaller under the
+     * larger, and gives the new root the top and bottom bits of both.
+     * Returns the new root.
+     */
+    private long union(long p, long q) {
+        long rp = find(p);
+        long rq = find(q);
+        if (rp == rq)
+            return rp;
+        long ep = -get(rp);
+        long eq = -get(rq);
+        if (ep < eq) {  // the sizes are in the high bits
+            long t = rp;
+            rp = rq;
+            rq = t;
+        }
+        long total = (ep >>> 2) + (eq >>> 2);
+        put(rp, -(total << 2 | (ep | eq) & (TOP | BOTTOM)));
+        put(rq, rp + 1);
+        return rp;
+    }
+
+    private long get(long p) {
+        return segments[(int) (p >>> SEGMENT_BITS)].get((int) (p & SEGMENT_MASK));
+    }
+
+    private void put(long p, long entry) {
+        segments[(int) (p >>> SEGMENT_BITS)].put((int) (p & SEGMENT_MASK), entry);
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Compilation:  javac-algs4 NewmanZiff.java
+ * Execution:    java-algs4 NewmanZiff N T [-s seed] [-j threads] [-p points]
+ *               e.g. java-algs4 NewmanZiff 200 1000 -p 40
+ * Dependencies: Percolation.java
+ *
+ * Description: Newman-Ziff percolation: each of T trials opens every site of
+ *              an NxN grid, in a random order, in one sweep, and records
+ *              after every site opened whether the grid percolates and the
+ *              size of its largest cluster. Averaged over the trials, these
+ *              give the spanning probability and the mean largest cluster
+ *              for every number n of open sites (the microcanonical
+ *              ensemble). Weighting them by the binomial probability of n
+ *              open sites out of N^2 when each is open with probability p
+ *              gives the same curves for any p (the canonical ensemble), so
+ *              one run yields the whole percolation curve.
+ *              The threshold, the fraction open when the grid first
+ *              percolates, is estimated as by PercolationStats.
+ *              Trials run on several threads, trial t drawing from the t-th
+ *              SplittableRandom split off one seeded generator. The totals
+ *              are sums of integers, so the results depend only on the seed
+ *              and not on the number of threads.
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NewmanZiff {
+
+    private int N;
+    private int T;
+    /* spans[n] is the number of trials that percolate with n sites open. */
+    private long[] spans;
+    /* largest[n] is the sum over the trials of the largest cluster with n
+     * sites open. */
+    private long[] largest;
+    /* Sum and sum of squares over the trials of the number of sites open
+     * when the grid first percolates. */
+    private double thresholdSum;
+    private double thresholdSquares;
+
+    /* One thread's totals. */
+    private static class Totals {
+        private int[] first;     // first[n]: trials that first percolate at n
+        private long[] largest;
+
+        Totals(int sites) {
+            first = new int[sites + 1];
+            largest = new long[sites + 1];
+        }
+    }
+
+    /*
+     * Constructor. Performs T sweeps of NxN grids on the given number of
+     * threads, drawing sites from the given seed.
+     */
+    public NewmanZiff(int N, int T, long seed, int threads) {
+        if (N <= 0 || T <= 0 || threads <= 0)
+            throw new IllegalArgumentException("Inputs must be positive.");
+        this.N = N;
+        this.T = T;
+        int sites = N * N;
+        SplittableRandom master = new SplittableRandom(seed);
+        SplittableRandom[] rngs = new SplittableRandom[T];
+        for (int t = 0; t < T; t++)
+            rngs[t] = master.split();
+        AtomicInteger next = new AtomicInteger();
+        Totals[] parts = new Totals[threads];
+        Thread[] workers = new Thread[threads];
+        RuntimeException[] failure = new RuntimeException[1];
+        for (int w = 0; w < threads; w++) {
+            Totals part = new Totals(sites);
+            parts[w] = part;
+            workers[w] = new Thread(() -> {
+                try {
+                    int[] order = new int[sites];
+                    for (int t = next.getAndIncrement(); t < T;
+                         t = next.getAndIncrement())
+                        sweep(N, rngs[t], order, part);
+                }
+                catch (RuntimeException e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            }, "newman-ziff-" + w);
+            workers[w].start();
+        }
+        try {
+            for (Thread w : workers)
+                w.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (failure[0] != null)
+            throw failure[0];
+
+        spans = new long[sites + 1];
+        largest = new long[sites + 1];
+        for (Totals part : parts) {
+            for (int n = 0; n <= sites; n++) {
+                spans[n] += part.first[n];
+                largest[n] += part.largest[n];
+            }
+        }
+        for (int n = 0; n <= sites; n++) {
+            thresholdSum += (double) n * spans[n];
+            thresholdSquares += (double) n * n * spans[n];
+        }
+        // A trial that percolates at n percolates at every larger n.
+        for (int n = 1; n <= sites; n++)
+            spans[n] += spans[n - 1];
+    }
+
+    /*
+     * Returns the fraction of trials that percolate with n sites open.
+     */
+    public double spanning(int n) {
+        return (double) spans[check(n)] / T;
+    }
+
+    /*
+     * Returns the mean size of the largest cluster, as a fraction of the
+     * sites, with n sites open.
+     */
+    public double largestCluster(int n) {
+        return (double) largest[check(n)] / T / (N * N);
+    }
+
+    /*
+     * Returns the probability that the grid percolates when each site is
+     * open with probability p.
+     */
+    public double spanningAt(double p) {
+        return convolve(spans, p) / T;
+    }
+
+    /*
+     * Returns the mean size of the largest cluster, as a fraction of the
+     * sites, when each site is open with probability p.
+     */
+    public double largestClusterAt(double p) {
+        return convolve(largest, p) / T / (N * N);
+    }
+
+    /*
+     * Returns the mean fraction of sites open when the grid first
+     * percolates.
+     */
+    public double mean() {
+        return thresholdSum / T / (N * N);
+    }
+
+    /*
+     * Returns the sample standard deviation of the fraction of sites open
+     * when the grid first percolates.
+     */
+    public double stddev() {
+        if (T == 1)
+            return Double.NaN;
+        double m = thresholdSum / T;
+        double var = (thresholdSquares - T * m * m) / (T - 1);
+        return Math.sqrt(Math.max(0, var)) / (N * N);
+    }
+
+    public static void main(String[] args) {
+        int N = Integer.parseInt(args[0]);
+        int T = Integer.parseInt(args[1]);
+        long seed = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int points = 20;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("-s"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("-j"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-p"))
+                points = Integer.parseInt(args[++i]);
+            else
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+        Stopwatch sw = new Stopwatch();
+        NewmanZiff nz = new NewmanZiff(N, T, seed, threads);
+        double elapsedTime = sw.elapsedTime();
+        StdOut.printf("%8s %12s %12s\n", "p", "spanning", "largest");
+        for (int k = 0; k <= points; k++) {
+            double p = (double) k / points;
+            StdOut.printf("%8.4f %12.6f %12.6f\n", p, nz.spanningAt(p),
+                          nz.largestClusterAt(p));
+        }
+        StdOut.printf("mean                    = %f\n", nz.mean());
+        StdOut.printf("stddev                  = %f\n", nz.stddev());
+        StdOut.printf("Elapsed Time            = %fs\n", elapsedTime);
+    }
+
+    /* Helper functions */
+
+    /*
+     * Opens every site of an NxN grid in a random order, adding to the
+     * totals the number of sites open when it first percolates and its
+     * largest cluster after every site.
+     */
+    private static void sweep(int N, SplittableRandom rng, int[] order,
+                              Totals totals) {
+        int sites = order.length;
+        for (int i = 0; i < sites; i++) {
+            int j = rng.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        Percolation perc = new Percolation(N);
+        int max = 0;
+        boolean percolated = false;
+        for (int n = 1; n <= sites; n++) {
+            int p = order[n - 1];
+            perc.open(p);
+            max = Math.max(max, perc.clusterSize(p));
+            totals.largest[n] += max;
+            if (!percolated && perc.percolates()) {
+                percolated = true;
+                totals.first[n]++;
+            }
+        }
+    }
+
+    /*
+     * Returns the sum over n of the binomial probability of n of the N^2
+     * sites being open, each with probability p, times q[n]. The
+     * probabilities are built outward from the most likely n by their
+     * ratios and normalized, so they neither overflow nor underflow where
+     * it matters.
+     */
+    private double convolve(long[] q, double p) {
+        if (Double.isNaN(p) || p < 0 || p > 1)
+            throw new IllegalArgumentException("p must be from 0 to 1");
+        int sites = q.length - 1;
+        if (p == 0)
+            return q[0];
+        if (p == 1)
+            return q[sites];
+        int mode = (int) Math.floor(p * (sites + 1));
+        if (mode > sites)
+            mode = sites;
+        double odds = p / (1 - p);
+        double sum = q[mode];
+        double norm = 1;
+        double b = 1;
+        for (int n = mode + 1; n <= sites && b > 1e-300; n++) {
+            b *= (double) (sites - n + 1) / n * odds;
+            sum += b * q[n];
+            norm += b;
+        }
+        b = 1;
+        for (int n = mode - 1; n >= 0 && b > 1e-300; n--) {
+            b *= (double) (n + 1) / (sites - n) / odds;
+            sum += b * q[n];
+            norm += b;
+        }
+        return sum / norm;
+    }
+
+    /*
+     * Returns n if it's a number of open sites, from 0 to N^2.
+     */
+    private int check(int n) {
+        if (n < 0 || n > N * N)
+            throw new IndexOutOfBoundsException("n must be from 0 to N^2");
+        return n;
+    }
+}
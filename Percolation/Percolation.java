@@ -1,16 +1,41 @@
 /*
  * Daniel Chen
  * 8/26/13
+ *
+ * Description: An NxN grid of sites, each open or blocked, for percolation
+ *              experiments. Open neighboring sites are joined in a
+ *              union-find kept right here in one int array: a site's entry
+ *              is its parent, or minus the size of its set if it's a root.
+ *              Sets are joined by size and paths halved on every find. Open
+ *              sites are one bit each.
+ *              There are no virtual top and bottom sites. Instead each root
+ *              has two more bits, set if its set holds a site in the top
+ *              (bottom) row, and the bits of two sets are or-ed when they
+ *              are joined. A site is full if the root of its set is joined
+ *              to the top, so open bottom-row sites don't show as full just
+ *              because the system percolates through some other site
+ *              ("backwash"), as they would through a virtual bottom site,
+ *              without a second union-find.
+ *              Sites are also numbered row-major from 0 for the
+ *              package-private methods, which skip the bounds checks.
  */
 
+import java.util.Arrays;
+
 public class Percolation {
 
     private int size;
-    private boolean[] blocked;
-    //private QuickFindUF qfalg;
-    private WeightedQuickUnionUF wqualg;
+    /* Parent of each site, or minus the size of its set for a root. */
+    private int[] parent;
+    /* Bit p is set if site p is open. */
+    private long[] open;
+    /* For a root p, bit p is set if its set holds a site in the top
+     * (bottom) row. */
+    private long[] top;
+    private long[] bottom;
+    private boolean percolates;
 
-    /* 
+    /*
      * Constructor. Initializes an NxN grid of blocked cells.
      * Input N: The size of the grid.
      */
@@ -18,22 +43,16 @@ public class Percolation {
         if (N <= 0) {
             throw new IllegalArgumentException("Grid size must be positive.");
         }
-
-        size = N;
-        blocked = new boolean[N * N];
-        // Initialize the grid of blocked cells.
-        for (int i = 0; i < N * N; i++) {
-            blocked[i] = true;
+        if (N > 46340) {
+            throw new IllegalArgumentException("Grid size must be at most 46340.");
         }
 
-        // Initialize the QF/WQU representation of these cells.
-        // The first N * N cells represent the corresponding cells in the grid.
-        // The N * N cell is the top node and should be connected to each 
-        // cell in the top row.
-        // The N * N + 1 cell is the bottom node and should be connected to each
-        // cell in the bottom row.
-        //qfalg = new QuickFindUF(N * N + 2);
-        wqualg = new WeightedQuickUnionUF(N * N + 2);
+        size = N;
+        parent = new int[N * N];
+        Arrays.fill(parent, -1);
+        open = new long[(N * N + 63) >>> 6];
+        top = new long[open.length];
+        bottom = new long[open.length];
     }
 
     /*
@@ -42,40 +61,7 @@ public class Percolation {
      * Input j: The column of the cell (from 1 to N).
      */
     public void open(int i, int j) {
-        if (i < 1 || i > this.size || j < 1 || j > this.size) {
-            throw new IndexOutOfBoundsException("Indices must be from 1 to N");
-        }
-
-        int rmod = i-1;
-        int cmod = j-1;
-        int modIndex = rmod * size + cmod;
-        blocked[modIndex] = false;
-        // Connect to left cell
-        if (j > 1 && isOpen(i, j-1))
-            //qfalg.union(mod_index, rmod * size + (cmod-1));
-            wqualg.union(modIndex, rmod * size + (cmod-1));
-        // Connect to right cell
-        if (j < size && isOpen(i, j+1))
-            //qfalg.union(mod_index, rmod * size + (cmod+1));
-            wqualg.union(modIndex, rmod * size + (cmod+1));
-        // Connect to upper cell
-        if (i > 1 && isOpen(i-1, j))
-            //qfalg.union(mod_index, (rmod-1) * size + cmod);
-            wqualg.union(modIndex, (rmod-1) * size + cmod);
-        // Connect to lower cell
-        if (i < size && isOpen(i+1, j))
-            //qfalg.union(mod_index, (rmod+1) * size + cmod);
-            wqualg.union(modIndex, (rmod+1) * size + cmod);
-        // If it's on the top row, connect it to the top cell.
-        if (i == 1) {
-            //qfalg.union(mod_index, size * size);
-            wqualg.union(modIndex, size * size);
-        }
-        // If it's on the bottom row, connect it to the bottom cell.
-        if (i == size) {
-            //qfalg.union(mod_index, size * size + 1);
-            wqualg.union(modIndex, size * size + 1);
-        }
+        open(site(i, j));
     }
 
     /*
@@ -85,14 +71,7 @@ public class Percolation {
      * Output: Whether or not the cell is open.
      */
     public boolean isOpen(int i, int j) {
-        if (i < 1 || i > size || j < 1 || j > size) {
-            throw new IndexOutOfBoundsException("Indices must be from 1 to N");
-        }
-
-        int rmod = i-1;
-        int cmod = j-1;
-        int modIndex = rmod * size + cmod;
-        return !blocked[modIndex];
+        return isOpen(site(i, j));
     }
 
     /*
@@ -104,27 +83,125 @@ public class Percolation {
      * Output: Whether or not the system percolates to the input cell.
      */
     public boolean isFull(int i, int j) {
-        if (i < 1 || i > size || j < 1 || j > size) {
-            throw new IndexOutOfBoundsException("Indices must be from 1 to N");
-        }
-
-        int rmod = i-1;
-        int cmod = j-1;
-        int modIndex = rmod * size + cmod;
-        // Return whether or not the input node is connected to the top node.
-        //return qfalg.connected(mod_index, size * size);
-        return wqualg.connected(modIndex, size * size);
+        return isFull(site(i, j));
     }
 
     /*
      * Returns whether or not the system percolates. That is, it returns true if
-     * there exists some cell in the bottom row that is in the same set as any 
+     * there exists some cell in the bottom row that is in the same set as any
      * open cell in the top row of the grid.
      * Output: Whether or not the system percolates.
      */
     public boolean percolates() {
-        // Return whether or not the bottom node is connected to the top node.
-        //return qfalg.connected(size * size, size * size + 1);
-        return wqualg.connected(size * size, size * size + 1);
+        return percolates;
+    }
+
+    /*
+     * Opens site p (row-major from 0) and joins it to its open neighbors.
+     * p is not checked.
+     */
+    void open(int p) {
+        if (isOpen(p))
+            return;
+        set(open, p);
+        if (p < size)
+            set(top, p);
+        if (p >= parent.length - size)
+            set(bottom, p);
+        int root = p;
+        int col = p % size;
+        if (col > 0 && isOpen(p - 1))
+            root = union(root, p - 1);
+        if (col < size - 1 && isOpen(p + 1))
+            root = union(root, p + 1);
+        if (p >= size && isOpen(p - size))
+            root = union(root, p - size);
+        if (p < parent.length - size && isOpen(p + size))
+            root = union(root, p + size);
+        if (get(top, root) && get(bottom, root))
+            percolates = true;
+    }
+
+    /*
+     * Returns whether site p (row-major from 0) is open. p is not checked.
+     */
+    boolean isOpen(int p) {
+        return get(open, p);
+    }
+
+    /*
+     * Returns whether site p (row-major from 0) is joined to the top. p is
+     * not checked.
+     */
+    boolean isFull(int p) {
+        return isOpen(p) && get(top, find(p));
+    }
+
+    /*
+     * Returns the number of open sites in the set holding site p (row-major
+     * from 0), 1 for a blocked site. p is not checked.
+     */
+    int clusterSize(int p) {
+        return -parent[find(p)];
+    }
+
+    /* Helper functions */
+
+    /*
+     * Returns the row-major index from 0 of the cell at (i, j), both from 1.
+     */
+    private int site(int i, int j) {
+        if (i < 1 || i > size || j < 1 || j > size) {
+            throw new IndexOutOfBoundsException("Indices must be from 1 to N");
+        }
+        return (i - 1) * size + (j - 1);
+    }
+
+    /*
+     * Returns the root of the set holding site p, pointing every other site
+     * on the way at its grandparent.
+     */
+    private int find(int p) {
+        int q;
+        while ((q = parent[p]) >= 0) {
+            int r = parent[q];
+            if (r < 0)
+                return q;
+            parent[p] = r;
+            p = r;
+        }
+        return p;
+    }
+
+    /*
+     * Joins the sets holding sites p and q, the smaller under the larger,
+     * and gives the new root the top and bottom bits of both. Returns the
+     * new root.
+     */
+    private int union(int p, int q) {
+        int rp = find(p);
+        int rq = find(q);
+        if (rp == rq)
+            return rp;
+        if (parent[rp] > parent[rq]) {  // sizes are negated
+            int t = rp;
+            rp = rq;
+            rq = t;
+        }
+        parent[rp] += parent[rq];
+        parent[rq] = rp;
+        if (get(top, rq))
+            set(top, rp);
+        if (get(bottom, rq))
+            set(bottom, rp);
+        return rp;
+    }
+
+    private static boolean get(long[] bits, int p) {
+        return (bits[p >>> 6] & (1L << p)) != 0;
+    }
+
+    private static void set(long[] bits, int p) {
+        bits[p >>> 6] |= 1L << p;
     }
 }
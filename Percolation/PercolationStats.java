@@ -1,42 +1,126 @@
 /*
  * Daniel Chen
  * 8/26/13
+ *
+ * Description: Estimates the percolation threshold by T experiments on NxN
+ *              grids: open random blocked sites until the grid percolates
+ *              and record the fraction of sites open. Sites are opened in a
+ *              random order (see SiteOrder.java), so no draw is wasted on a
+ *              site that's already open.
+ *              Trials run on several threads. Trial t draws its sites from
+ *              its own SplittableRandom, the t-th split off one generator
+ *              seeded with the master seed, and trials are grouped in fixed
+ *              chunks whose means and variances are merged in chunk order,
+ *              so the results depend only on the seed and not on the number
+ *              of threads.
  */
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class PercolationStats {
+
+    /* Trials per chunk. */
+    private static final int CHUNK = 16;
+
     private double mean;
     private double stddev;
     private double confidenceLo;
     private double confidenceHi;
 
+    /*
+     * Running count, mean and sum of squared deviations of some values
+     * (Welford), which can be merged with those of other values (Chan et
+     * al.).
+     */
+    private static class Moments {
+        private long n;
+        private double mean;
+        private double m2;
+
+        void add(double x) {
+            n++;
+            double delta = x - mean;
+            mean += delta / n;
+            m2 += delta * (x - mean);
+        }
+
+        void add(Moments o) {
+            if (o.n == 0)
+                return;
+            long total = n + o.n;
+            double delta = o.mean - mean;
+            mean += delta * o.n / total;
+            m2 += o.m2 + delta * delta * ((double) n * o.n / total);
+            n = total;
+        }
+    }
+
     /*
      * Constructor. Performs T percolation experiments on NxN grids.
      * Input N: The size of the grid.
      * Input T: The number of trials.
      */
     public PercolationStats(int N, int T) {
-        if (N <= 0 || T <= 0) {
+        this(N, T, System.nanoTime(), Runtime.getRuntime().availableProcessors(),
+             SiteOrder.Kind.SHUFFLE);
+    }
+
+    /*
+     * Constructor. Performs T percolation experiments on NxN grids on the
+     * given number of threads, opening sites in orders of the given kind
+     * drawn from the given seed.
+     * Input N: The size of the grid.
+     * Input T: The number of trials.
+     * Input seed: The master seed.
+     * Input threads: The number of threads.
+     * Input order: The kind of site order.
+     */
+    public PercolationStats(int N, int T, long seed, int threads,
+                            SiteOrder.Kind order) {
+        if (N <= 0 || T <= 0 || threads <= 0) {
             throw new IllegalArgumentException("Inputs must be positive.");
         }
 
-        double[] numOpenSites = new double[T];
-        int counts;
-        int openCellIdx;
-        int row;
-        int col;
-        // Perform percolation experiments
-        for (int i = 0; i < T; i++) {
-            Percolation p = new Percolation(N);
-            counts = 0;
-            while (!p.percolates()) {
-                openRandom(p, N);
-                counts++;
+        SplittableRandom master = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Moments>> chunks = new ArrayList<Future<Moments>>();
+        Moments all = new Moments();
+        try {
+            for (int lo = 0; lo < T; lo += CHUNK) {
+                SplittableRandom[] rngs = new SplittableRandom[Math.min(CHUNK, T - lo)];
+                for (int k = 0; k < rngs.length; k++)
+                    rngs[k] = master.split();
+                chunks.add(pool.submit(() -> {
+                    Moments m = new Moments();
+                    for (SplittableRandom rng : rngs)
+                        m.add(trial(N, order.create(N * N, rng)));
+                    return m;
+                }));
             }
-            numOpenSites[i] = ((double) counts) / (N * N);
+            // Merge in chunk order, whichever finished first.
+            for (Future<Moments> f : chunks)
+                all.add(f.get());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
         }
+
         // Calculate statistics.
-        mean = StdStats.mean(numOpenSites);
-        stddev = StdStats.stddev(numOpenSites);
+        mean = all.mean;
+        stddev = T > 1 ? Math.sqrt(all.m2 / (T - 1)) : Double.NaN;
         confidenceLo = mean - 1.96 * stddev / Math.sqrt(T);
         confidenceHi = mean + 1.96 * stddev / Math.sqrt(T);
     }
@@ -74,20 +158,42 @@ public class PercolationStats {
     }
 
     /*
-     * Main method. Takes two command-line arguments, N and T, which should be 
-     * positive integers.
-     * Input args: Two positive integers (N T) from the command line 
-     * (e.g. 400 100)
+     * Main method. Takes the grid dimension N and the number of trials T,
+     * which should be positive integers, from the command line, or asks for
+     * them if there are no arguments.
+     * Input args: N T [-s seed] [-j threads] [-o shuffle|cipher]
+     * (e.g. 400 100 -s 42 -j 8)
      */
     public static void main(String[] args) {
-        StdOut.println("Enter the grid dimension N "
-                        + "(must be a positive integer): ");
-        int N = StdIn.readInt();
-        StdOut.println("Enter the number of trials T "
-                        + "(must be a positive integer): ");
-        int T = StdIn.readInt();
+        int N;
+        int T;
+        long seed = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        SiteOrder.Kind order = SiteOrder.Kind.SHUFFLE;
+        if (args.length >= 2) {
+            N = Integer.parseInt(args[0]);
+            T = Integer.parseInt(args[1]);
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].equals("-s"))
+                    seed = Long.parseLong(args[++i]);
+                else if (args[i].equals("-j"))
+                    threads = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-o"))
+                    order = SiteOrder.Kind.valueOf(args[++i].toUpperCase());
+                else
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        else {
+            StdOut.println("Enter the grid dimension N "
+                            + "(must be a positive integer): ");
+            N = StdIn.readInt();
+            StdOut.println("Enter the number of trials T "
+                            + "(must be a positive integer): ");
+            T = StdIn.readInt();
+        }
         Stopwatch sw = new Stopwatch();
-        PercolationStats ps = new PercolationStats(N, T);
+        PercolationStats ps = new PercolationStats(N, T, seed, threads, order);
         double elapsedTime = sw.elapsedTime();
         StdOut.printf("mean                    = %f\n", ps.mean());
         StdOut.printf("stddev                  = %f\n", ps.stddev());
@@ -98,19 +204,19 @@ public class PercolationStats {
 
     /* Helper functions */
 
-        /*
-     * Chooses a random open cell and opens it.
+    /*
+     * Opens the cells of an NxN grid in the given order until it percolates
+     * and returns the fraction of cells open.
      */
-    private void openRandom(Percolation p, int size) {
-        while (true) {
-            double rand = StdRandom.random();
-            int idx = (int) Math.floor(rand * size * size);
-            int row = idx / size + 1; // + 1 because open() params are
-            int col = idx % size + 1; // 1-indexed
-            if (!p.isOpen(row, col)) {
-                p.open(row, col);
-                break;
-            }
+    private static double trial(int N, SiteOrder order) {
+        Percolation p = new Percolation(N);
+        int counts = 0;
+        while (!p.percolates()) {
+            // sites from the order are in range, so skip the row and column
+            // checks
+            p.open(order.next());
+            counts++;
         }
+        return ((double) counts) / (N * N);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,141 @@
+/*
+ * Compilation:  javac-algs4 SiteOrder.java
+ * Execution:
+ * Dependencies: none
+ *
+ * Description: A random order in which to open the sites of a grid: every
+ *              site, row-major from 0, exactly once, so a trial never draws
+ *              a site that is already open.
+ *              Shuffled is a Fisher-Yates shuffle done one draw at a time,
+ *              so a trial that stops at the threshold only pays for the
+ *              sites it opened. Its array starts out all zeros and an entry
+ *              of 0 stands for the identity, so there is no pass to fill
+ *              it. 4 bytes per site, and a uniformly random order.
+ *              Cipher runs a counter through a keyed 4-round Feistel network
+ *              on pairs of numbers from 0 to s - 1, s = ceil(sqrt(sites)),
+ *              whose rounds add (mod s) instead of xor, so it's a bijection
+ *              on [0, s^2). Outputs past the last site are put through the
+ *              network again until they land on one ("cycle walking"), which
+ *              keeps it a bijection on the sites; for an N x N grid s is N
+ *              and there is nothing to walk. No memory per site, but the
+ *              orders are pseudo-random ones, not uniform over all of them.
+ *              A Cipher can also order more than 2^31 - 1 sites through
+ *              nextLong(), for LargePercolation.java.
+ */
+
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+public interface SiteOrder {
+
+    /* Kinds of orders. */
+    enum Kind {
+        SHUFFLE, CIPHER;
+
+        /* Returns an order of this kind of sites 0 to sites - 1 drawn from
+         * rng. */
+        SiteOrder create(int sites, SplittableRandom rng) {
+            return this == SHUFFLE ? new Shuffled(sites, rng)
+                                   : new Cipher(sites, rng);
+        }
+    }
+
+    /* Returns the next site. Throws NoSuchElementException after the
+     * last. */
+    int next();
+
+    /* A lazily shuffled permutation. */
+    final class Shuffled implements SiteOrder {
+        /* a[i] is 0 if position i still holds site i, otherwise the site it
+         * holds plus 1. */
+        private int[] a;
+        private int drawn;
+        private SplittableRandom rng;
+
+        public Shuffled(int sites, SplittableRandom rng) {
+            if (sites <= 0)
+                throw new IllegalArgumentException("Need at least one site");
+            a = new int[sites];
+            this.rng = rng;
+        }
+
+        public int next() {
+            int k = drawn;
+            if (k == a.length)
+                throw new NoSuchElementException("Every site has been drawn");
+            int j = k + rng.nextInt(a.length - k);
+            int site = a[j] == 0 ? j : a[j] - 1;
+            a[j] = a[k] == 0 ? k + 1 : a[k];
+            drawn++;
+            return site;
+        }
+    }
+
+    /* A Feistel network permutation with cycle walking. */
+    final class Cipher implements SiteOrder {
+        private static final int ROUNDS = 4;
+
+        private long sites;
+        /* Each half of a Feistel block is from 0 to side - 1. */
+        private int side;
+        private int[] keys = new int[ROUNDS];
+        private long counter;
+
+        public Cipher(long sites, SplittableRandom rng) {
+            if (sites <= 0)
+                throw new IllegalArgumentException("Need at least one site");
+            if (sites > 1L << 60)
+                throw new IllegalArgumentException("At most 2^60 sites");
+            this.sites = sites;
+            side = (int) Math.sqrt(sites);
+            while ((long) side * side < sites)
+                side++;
+            for (int r = 0; r < ROUNDS; r++)
+                keys[r] = rng.nextInt();
+        }
+
+        public int next() {
+            if (sites > Integer.MAX_VALUE)
+                throw new IllegalStateException("Too many sites for an int");
+            return (int) nextLong();
+        }
+
+        /* Returns the next site. Throws NoSuchElementException after the
+         * last. */
+        public long nextLong() {
+            if (counter == sites)
+                throw new NoSuchElementException("Every site has been drawn");
+            long x = counter++;
+            do {
+                x = encrypt(x);
+            } while (x >= sites);
+            return x;
+        }
+
+        /* Returns the image of x in [0, side^2). */
+        private long encrypt(long x) {
+            int left = (int) (x / side);
+            int right = (int) (x - (long) left * side);
+            for (int r = 0; r < ROUNDS; r++) {
+                // the round function, scaled to [0, side) by a multiply
+                int f = (int) (((mix(right ^ keys[r]) & 0xffffffffL) * side) >>> 32);
+                int t = left + f;
+                if (t >= side)
+                    t -= side;
+                left = right;
+                right = t;
+            }
+            return (long) left * side + right;
+        }
+
+        /* The MurmurHash3 finalizer. */
+        private static int mix(int h) {
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Compilation:  javac-algs4 StripPercolation.java
+ * Execution:    java-algs4 StripPercolation N p [-s seed] [-j threads]
+ *               e.g. java-algs4 StripPercolation 40000 0.5927 -j 8
+ * Dependencies: none
+ *
+ * Description: One NxN grid with each site open with probability p,
+ *              labelled on several threads: the grid is cut into horizontal
+ *              strips, one per thread, each strip's sites are drawn and
+ *              joined to their open neighbors within the strip by its own
+ *              thread, and then only the sites on either side of each cut
+ *              are joined, N per cut. The union-find is one int array over
+ *              the whole grid, as in Percolation.java, but with 0 for a
+ *              blocked site and parent plus 1 for an open one, so the strips
+ *              write only to their own part of it and share no words.
+ *              Row i is drawn from the i-th SplittableRandom split off one
+ *              seeded generator, so the grid and everything about it depend
+ *              only on the seed and not on the number of threads.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class StripPercolation {
+
+    private int size;
+    /* 0 for a blocked site, its parent plus 1 for an open site, or minus
+     * the size of its set for a root. */
+    private int[] parent;
+    private boolean percolates;
+    private long clusters;
+    private int largest;
+
+    /*
+     * Constructor. Draws and labels an NxN grid on the given number of
+     * threads.
+     * Input N: The size of the grid.
+     * Input p: The probability that a site is open.
+     * Input seed: The seed.
+     * Input threads: The number of threads, and of strips.
+     */
+    public StripPercolation(int N, double p, long seed, int threads) {
+        if (N <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Inputs must be positive.");
+        }
+        if (N > 46340) {
+            throw new IllegalArgumentException("Grid size must be at most 46340.");
+        }
+        if (Double.isNaN(p) || p < 0 || p > 1) {
+            throw new IllegalArgumentException("p must be from 0 to 1");
+        }
+
+        size = N;
+        parent = new int[N * N];
+        SplittableRandom master = new SplittableRandom(seed);
+        SplittableRandom[] rngs = new SplittableRandom[N];
+        for (int i = 0; i < N; i++)
+            rngs[i] = master.split();
+        int strips = Math.min(threads, N);
+        int[] cuts = new int[strips + 1];
+        for (int k = 0; k <= strips; k++)
+            cuts[k] = (int) ((long) N * k / strips);
+
+        ExecutorService pool = Executors.newFixedThreadPool(strips);
+        try {
+            List<Future<?>> labelled = new ArrayList<Future<?>>();
+            for (int k = 0; k < strips; k++) {
+                int lo = cuts[k];
+                int hi = cuts[k + 1];
+                labelled.add(pool.submit(() -> label(lo, hi, p, rngs)));
+            }
+            for (Future<?> f : labelled)
+                f.get();
+
+            // Join across the cuts, the only step that spans strips.
+            for (int k = 1; k < strips; k++) {
+                int first = cuts[k] * N;
+                for (int q = first; q < first + N; q++)
+                    if (parent[q] != 0 && parent[q - N] != 0)
+                        union(q, q - N);
+            }
+
+            // Count the roots, which is read-only, so in strips again.
+            List<Future<long[]>> counted = new ArrayList<Future<long[]>>();
+            for (int k = 0; k < strips; k++) {
+                int lo = cuts[k] * N;
+                int hi = cuts[k + 1] * N;
+                counted.add(pool.submit(() -> {
+                    long[] c = new long[2];
+                    for (int q = lo; q < hi; q++) {
+                        if (parent[q] < 0) {
+                            c[0]++;
+                            c[1] = Math.max(c[1], -parent[q]);
+                        }
+                    }
+                    return c;
+                }));
+            }
+            for (Future<long[]> f : counted) {
+                long[] c = f.get();
+                clusters += c[0];
+                largest = Math.max(largest, (int) c[1]);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+
+        // Percolates if a root of a top-row site is a root of a bottom-row
+        // one. There are at most N top-row roots, sorted to be searched.
+        int[] top = new int[N];
+        int roots = 0;
+        for (int q = 0; q < N; q++)
+            if (parent[q] != 0)
+                top[roots++] = find(q);
+        Arrays.sort(top, 0, roots);
+        for (int q = N * N - N; q < N * N && !percolates; q++)
+            if (parent[q] != 0 && Arrays.binarySearch(top, 0, roots, find(q)) >= 0)
+                percolates = true;
+    }
+
+    /*
+     * Returns whether or not the cell at (i, j) is open.
+     * Input i: The row of the cell (from 1 to N).
+     * Input j: The column of the cell (from 1 to N).
+     * Output: Whether or not the cell is open.
+     */
+    public boolean isOpen(int i, int j) {
+        return parent[site(i, j)] != 0;
+    }
+
+    /*
+     * Returns whether or not the cells at (i1, j1) and (i2, j2) are open and
+     * in the same cluster.
+     * Output: Whether or not the cells are connected.
+     */
+    public boolean connected(int i1, int j1, int i2, int j2) {
+        int p = site(i1, j1);
+        int q = site(i2, j2);
+        return parent[p] != 0 && parent[q] != 0 && find(p) == find(q);
+    }
+
+    /*
+     * Returns the number of sites in the cluster of the cell at (i, j), 0
+     * if it's blocked.
+     */
+    public int clusterSize(int i, int j) {
+        int p = site(i, j);
+        return parent[p] == 0 ? 0 : -parent[find(p)];
+    }
+
+    /*
+     * Returns whether or not some open cell in the bottom row is in the same
+     * cluster as an open cell in the top row.
+     * Output: Whether or not the system percolates.
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /*
+     * Returns the number of clusters.
+     */
+    public long clusters() {
+        return clusters;
+    }
+
+    /*
+     * Returns the size of the largest cluster, 0 if there are none.
+     */
+    public int largest() {
+        return largest;
+    }
+
+    /*
+     * Main method. Draws and labels an NxN grid with sites open with
+     * probability p and prints whether it percolates and its clusters.
+     * Input args: N p [-s seed] [-j threads]
+     */
+    public static void main(String[] args) {
+        int N = Integer.parseInt(args[0]);
+        double p = Double.parseDouble(args[1]);
+        long seed = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("-s"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("-j"))
+                threads = Integer.parseInt(args[++i]);
+            else
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+        Stopwatch sw = new Stopwatch();
+        StripPercolation sp = new StripPercolation(N, p, seed, threads);
+        double elapsedTime = sw.elapsedTime();
+        StdOut.printf("percolates              = %b\n", sp.percolates());
+        StdOut.printf("clusters                = %d\n", sp.clusters());
+        StdOut.printf("largest                 = %d\n", sp.largest());
+        StdOut.printf("Elapsed Time            = %fs\n", elapsedTime);
+    }
+
+    /* Helper functions */
+
+    /*
+     * Draws rows lo to hi - 1 and joins their open sites to their open
+     * neighbors in those rows.
+     */
+    private void label(int lo, int hi, double p, SplittableRandom[] rngs) {
+        for (int i = lo; i < hi; i++) {
+            SplittableRandom rng = rngs[i];
+            int row = i * size;
+            for (int j = 0; j < size; j++) {
+                if (rng.nextDouble() >= p)
+                    continue;
+                int q = row + j;
+                parent[q] = -1;
+                if (j > 0 && parent[q - 1] != 0)
+                    union(q, q - 1);
+                if (i > lo && parent[q - size] != 0)
+                    union(q, q - size);
+            }
+        }
+    }
+
+    /*
+     * Returns the row-major index from 0 of the cell at (i, j), both from 1.
+     */
+    private int site(int i, int j) {
+        if (i < 1 || i > size || j < 1 || j > size) {
+            throw new IndexOutOfBoundsException("Indices must be from 1 to N");
+        }
+        return (i - 1) * size + (j - 1);
+    }
+
+    /*
+     * Returns the root of the set holding open site p, pointing every other
+     * site on the way at its grandparent.
+     */
+    private int find(int p) {
+        int q;
+        while ((q = parent[p]) > 0) {
+            int r = parent[q - 1];
+            if (r < 0)
+                return q - 1;
+            parent[p] = r;
+            p = r - 1;
+        }
+        return p;
+    }
+
+    /*
+     * Joins the sets holding open sites p and q, the smaller under the
+     * larger.
+     */
+    private void union(int p, int q) {
+        int rp = find(p);
+        int rq = find(q);
+        if (rp == rq)
+            return;
+        if (parent[rp] > parent[rq]) {  // sizes are negated
+            int t = rp;
+            rp = rq;
+            rq = t;
+        }
+        parent[rp] += parent[rq];
+        parent[rq] = rp + 1;
+    }
+}
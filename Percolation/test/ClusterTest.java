@@ -0,0 +1,88 @@
+/*
+ * Compilation:  mvn test (from the top of the repository)
+ * Execution:
+ * Dependencies: FloodFill.java, HoshenKopelman.java, StripPercolation.java
+ *
+ * Description: Checks the cluster labellings of whole grids against a flood
+ *              fill: HoshenKopelman on random rectangular grids fed row by
+ *              row, and StripPercolation on random square grids cut into
+ *              any number of strips.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class ClusterTest {
+
+    @Test
+    void hoshenKopelmanMatchesFloodFill() {
+        SplittableRandom rng = new SplittableRandom(3);
+        for (int t = 0; t < 2000; t++) {
+            int rows = 1 + rng.nextInt(70);
+            int cols = 1 + rng.nextInt(70);
+            boolean[][] open = FloodFill.random(rows, cols, rng.nextDouble(), rng);
+            HoshenKopelman hk = new HoshenKopelman(cols);
+            for (boolean[] line : open) {
+                long[] row = new long[(cols + 63) >>> 6];
+                for (int j = 0; j < cols; j++)
+                    if (line[j])
+                        row[j >>> 6] |= 1L << j;
+                hk.addRow(row);
+            }
+            hk.finish();
+            FloodFill f = new FloodFill(open);
+            String grid = rows + "x" + cols + " grid " + t;
+            assertEquals(f.histogram(), hk.histogram(), grid);
+            assertEquals(f.percolates(), hk.percolates(), grid);
+            assertEquals(f.clusters(), hk.clusters(), grid);
+            assertEquals(f.largest(), hk.largest(), grid);
+        }
+    }
+
+    @Test
+    void hoshenKopelmanNeedsFinish() {
+        HoshenKopelman hk = new HoshenKopelman(4);
+        hk.addRow(new long[] { 0b1011 });
+        assertThrows(IllegalStateException.class, hk::percolates);
+        hk.finish();
+        assertThrows(IllegalStateException.class, () -> hk.addRow(new long[1]));
+    }
+
+    @Test
+    void stripPercolationMatchesFloodFill() {
+        SplittableRandom rng = new SplittableRandom(4);
+        for (int t = 0; t < 1000; t++) {
+            int N = 1 + rng.nextInt(60);
+            double p = rng.nextDouble();
+            long seed = rng.nextLong();
+            StripPercolation one = new StripPercolation(N, p, seed, 1);
+            StripPercolation sp = new StripPercolation(N, p, seed,
+                                                       2 + rng.nextInt(8));
+            boolean[][] open = new boolean[N][N];
+            for (int i = 0; i < N; i++) {
+                for (int j = 0; j < N; j++) {
+                    open[i][j] = sp.isOpen(i + 1, j + 1);
+                    assertEquals(one.isOpen(i + 1, j + 1), open[i][j],
+                                 "the grid depends on the number of strips");
+                }
+            }
+            FloodFill f = new FloodFill(open);
+            String grid = N + "x" + N + " grid " + t;
+            assertEquals(f.percolates(), sp.percolates(), grid);
+            assertEquals(f.clusters(), sp.clusters(), grid);
+            assertEquals(f.largest(), sp.largest(), grid);
+            for (int i = 0; i < N; i++)
+                for (int j = 0; j < N; j++)
+                    assertEquals(f.clusterSize(i, j), sp.clusterSize(i + 1, j + 1));
+            for (int k = 0; k < 50; k++) {
+                int i1 = rng.nextInt(N), j1 = rng.nextInt(N);
+                int i2 = rng.nextInt(N), j2 = rng.nextInt(N);
+                assertEquals(f.connected(i1, j1, i2, j2),
+                             sp.connected(i1 + 1, j1 + 1, i2 + 1, j2 + 1), grid);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Compilation:  mvn test (from the top of the repository)
+ * Execution:
+ * Dependencies: none
+ *
+ * Description: The clusters of a grid of open and blocked sites found the
+ *              obvious way, by breadth-first search from every open site not
+ *              yet labelled, for the tests to check the union-finds against.
+ */
+
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+final class FloodFill {
+
+    private int rows;
+    private int cols;
+    /* Cluster of every site, from 1, 0 if blocked. */
+    private int[][] label;
+    /* Size of every cluster, and whether it holds a site in the top (bottom)
+     * row. */
+    private int[] size;
+    private boolean[] top;
+    private boolean[] bottom;
+    private int clusters;
+
+    /* Labels the clusters of open[row][col]. */
+    FloodFill(boolean[][] open) {
+        rows = open.length;
+        cols = open[0].length;
+        label = new int[rows][cols];
+        size = new int[rows * cols + 1];
+        top = new boolean[rows * cols + 1];
+        bottom = new boolean[rows * cols + 1];
+        ArrayDeque<int[]> queue = new ArrayDeque<int[]>();
+        int[][] steps = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (!open[i][j] || label[i][j] != 0)
+                    continue;
+                int c = ++clusters;
+                label[i][j] = c;
+                queue.add(new int[] { i, j });
+                while (!queue.isEmpty()) {
+                    int[] s = queue.poll();
+                    size[c]++;
+                    top[c] |= s[0] == 0;
+                    bottom[c] |= s[0] == rows - 1;
+                    for (int[] d : steps) {
+                        int x = s[0] + d[0];
+                        int y = s[1] + d[1];
+                        if (x >= 0 && x < rows && y >= 0 && y < cols
+                            && open[x][y] && label[x][y] == 0) {
+                            label[x][y] = c;
+                            queue.add(new int[] { x, y });
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /* Returns a grid with each site open with probability p. */
+    static boolean[][] random(int rows, int cols, double p, SplittableRandom rng) {
+        boolean[][] open = new boolean[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                open[i][j] = rng.nextDouble() < p;
+        return open;
+    }
+
+    /* Returns whether a cluster holds a site in both the top and the bottom
+     * row. */
+    boolean percolates() {
+        for (int c = 1; c <= clusters; c++)
+            if (top[c] && bottom[c])
+                return true;
+        return false;
+    }
+
+    /* Returns whether site (i, j), from 0, is open and in a cluster with a
+     * site in the top row. */
+    boolean isFull(int i, int j) {
+        return label[i][j] != 0 && top[label[i][j]];
+    }
+
+    /* Returns the size of the cluster of site (i, j), from 0, 0 if it's
+     * blocked. */
+    int clusterSize(int i, int j) {
+        return size[label[i][j]];
+    }
+
+    boolean connected(int i1, int j1, int i2, int j2) {
+        return label[i1][j1] != 0 && label[i1][j1] == label[i2][j2];
+    }
+
+    int clusters() {
+        return clusters;
+    }
+
+    int largest() {
+        int largest = 0;
+        for (int c = 1; c <= clusters; c++)
+            largest = Math.max(largest, size[c]);
+        return largest;
+    }
+
+    /* Returns the number of clusters of each size, by size. */
+    TreeMap<Long, Long> histogram() {
+        TreeMap<Long, Long> h = new TreeMap<Long, Long>();
+        for (int c = 1; c <= clusters; c++)
+            h.merge((long) size[c], 1L, Long::sum);
+        return h;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Compilation:  mvn test (from the top of the repository)
+ * Execution:
+ * Dependencies: FloodFill.java, Percolation.java, LargePercolation.java
+ *
+ * Description: Opens random sites of Percolation and LargePercolation grids
+ *              one at a time and checks percolates(), isOpen(), isFull() and
+ *              the cluster sizes against a flood fill of the sites opened so
+ *              far, including that open bottom-row sites aren't full just
+ *              because the grid percolates ("backwash").
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class PercolationTest {
+
+    @Test
+    void percolationMatchesFloodFill() {
+        SplittableRandom rng = new SplittableRandom(1);
+        for (int N : new int[] { 1, 2, 3, 5, 8, 20 }) {
+            for (int t = 0; t < 20; t++) {
+                Percolation perc = new Percolation(N);
+                boolean[][] open = new boolean[N][N];
+                for (int k = 0; k < N * N; k++) {
+                    int i = rng.nextInt(N);
+                    int j = rng.nextInt(N);
+                    perc.open(i + 1, j + 1);
+                    open[i][j] = true;
+                    FloodFill f = new FloodFill(open);
+                    assertEquals(f.percolates(), perc.percolates());
+                    for (int x = 0; x < N; x++) {
+                        for (int y = 0; y < N; y++) {
+                            assertEquals(open[x][y], perc.isOpen(x + 1, y + 1));
+                            assertEquals(f.isFull(x, y), perc.isFull(x + 1, y + 1),
+                                         "isFull(" + (x + 1) + ", " + (y + 1) + ")");
+                            if (open[x][y])
+                                assertEquals(f.clusterSize(x, y),
+                                             perc.clusterSize(x * N + y));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void largePercolationMatchesFloodFill() throws IOException {
+        SplittableRandom rng = new SplittableRandom(2);
+        for (int N : new int[] { 1, 2, 3, 5, 8, 20 }) {
+            for (int t = 0; t < 5; t++) {
+                LargePercolation perc = new LargePercolation(N);
+                boolean[][] open = new boolean[N][N];
+                for (int k = 0; k < N * N; k++) {
+                    int i = rng.nextInt(N);
+                    int j = rng.nextInt(N);
+                    perc.open(i + 1, j + 1);
+                    open[i][j] = true;
+                    FloodFill f = new FloodFill(open);
+                    assertEquals(f.percolates(), perc.percolates());
+                    for (int x = 0; x < N; x++) {
+                        for (int y = 0; y < N; y++) {
+                            assertEquals(open[x][y], perc.isOpen(x + 1, y + 1));
+                            assertEquals(f.isFull(x, y), perc.isFull(x + 1, y + 1));
+                            assertEquals(f.clusterSize(x, y),
+                                         perc.clusterSize((long) x * N + y));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void badArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new Percolation(0));
+        assertThrows(IndexOutOfBoundsException.class,
+                     () -> new Percolation(3).open(0, 1));
+        assertThrows(IndexOutOfBoundsException.class,
+                     () -> new Percolation(3).isFull(1, 4));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new LargePercolation(1L << 29));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Compilation:  mvn test (from the top of the repository)
+ * Execution:
+ * Dependencies: SiteOrder.java
+ *
+ * Description: Checks that both kinds of SiteOrder draw every site exactly
+ *              once and then throw, and that a Cipher orders more sites than
+ *              an int can count through nextLong().
+ */
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class SiteOrderTest {
+
+    @ParameterizedTest
+    @EnumSource(SiteOrder.Kind.class)
+    void drawsEverySiteOnce(SiteOrder.Kind kind) {
+        SplittableRandom rng = new SplittableRandom(5);
+        for (int sites : new int[] { 1, 2, 3, 4, 7, 16, 99, 100, 101, 4096, 10007 }) {
+            SiteOrder order = kind.create(sites, rng);
+            BitSet drawn = new BitSet(sites);
+            for (int k = 0; k < sites; k++) {
+                int p = order.next();
+                assertTrue(p >= 0 && p < sites, "site " + p + " of " + sites);
+                assertFalse(drawn.get(p), "site " + p + " drawn twice");
+                drawn.set(p);
+            }
+            assertThrows(NoSuchElementException.class, order::next);
+        }
+    }
+
+    @Test
+    void cipherOrdersMoreThanAnIntOfSites() {
+        long sites = 3L << 31;
+        SiteOrder.Cipher order = new SiteOrder.Cipher(sites, new SplittableRandom(6));
+        assertThrows(IllegalStateException.class, order::next);
+        Set<Long> drawn = new HashSet<Long>();
+        boolean beyond = false;
+        for (int k = 0; k < 100000; k++) {
+            long p = order.nextLong();
+            assertTrue(p >= 0 && p < sites, "site " + p);
+            assertTrue(drawn.add(p), "site " + p + " drawn twice");
+            beyond |= p > Integer.MAX_VALUE;
+        }
+        assertTrue(beyond, "no site past 2^31 - 1");
+    }
+}